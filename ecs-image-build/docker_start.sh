@@ -6,4 +6,9 @@
 
 
 PORT=8080
-exec java -jar -Dserver.port="${PORT}" -XX:MaxRAMPercentage=80 "company-metrics-consumer.jar"
+
+# Keep alive as many connections to company-metrics-api as there may be recalculations in
+# flight, rather than the JVM default of five per host
+HTTP_MAX_CONNECTIONS="${HTTP_MAX_CONNECTIONS:-${COMPANY_METRICS_CONSUMER_PARALLEL_MAX_IN_FLIGHT:-200}}"
+
+exec java -jar -Dserver.port="${PORT}" -Dhttp.maxConnections="${HTTP_MAX_CONNECTIONS}" -XX:MaxRAMPercentage=80 "company-metrics-consumer.jar"
@@ -28,6 +28,8 @@ import org.testcontainers.utility.DockerImageName;
 import uk.gov.companieshouse.company.metrics.consumer.KafkaMessageConsumerAspect;
 import uk.gov.companieshouse.company.metrics.consumer.ResettableCountDownLatch;
 import uk.gov.companieshouse.company.metrics.exception.RetryableTopicErrorInterceptor;
+import uk.gov.companieshouse.company.metrics.logging.StructuredLoggingKafkaListenerInterceptor;
+import uk.gov.companieshouse.company.metrics.serialization.ByteBufferErrorHandlingDeserializer;
 import uk.gov.companieshouse.company.metrics.serialization.ResourceChangedDataDeserializer;
 import uk.gov.companieshouse.company.metrics.serialization.ResourceChangedDataSerializer;
 import uk.gov.companieshouse.company.metrics.steps.TestSupport;
@@ -40,11 +42,14 @@ public class KafkaTestContainerConfig {
 
     private final ResourceChangedDataDeserializer resourceChangedDataDeserializer;
     private final ResourceChangedDataSerializer resourceChangedDataSerializer;
+    private final StructuredLoggingKafkaListenerInterceptor structuredLoggingInterceptor;
 
     public KafkaTestContainerConfig(ResourceChangedDataDeserializer resourceChangedDataDeserializer,
-                                    ResourceChangedDataSerializer resourceChangedDataSerializer) {
+                                    ResourceChangedDataSerializer resourceChangedDataSerializer,
+                                    StructuredLoggingKafkaListenerInterceptor structuredLoggingInterceptor) {
         this.resourceChangedDataDeserializer = resourceChangedDataDeserializer;
         this.resourceChangedDataSerializer = resourceChangedDataSerializer;
+        this.structuredLoggingInterceptor = structuredLoggingInterceptor;
     }
 
     @Bean
@@ -69,6 +74,20 @@ public class KafkaTestContainerConfig {
         factory.getContainerProperties().setIdleBetweenPolls(0);
         factory.getContainerProperties().setPollTimeout(10L);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        factory.setRecordInterceptor(structuredLoggingInterceptor);
+        return factory;
+    }
+
+    @Bean
+    ConcurrentKafkaListenerContainerFactory<String, ResourceChangedData> batchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, ResourceChangedData> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(kafkaConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setIdleBetweenPolls(0);
+        factory.getContainerProperties().setPollTimeout(10L);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setBatchInterceptor(structuredLoggingInterceptor);
         return factory;
     }
 
@@ -76,7 +95,7 @@ public class KafkaTestContainerConfig {
     public ConsumerFactory<String, ResourceChangedData> kafkaConsumerFactory() {
         return new DefaultKafkaConsumerFactory<>(consumerConfigs(kafkaContainer()),
                 new StringDeserializer(),
-                new ErrorHandlingDeserializer<>(resourceChangedDataDeserializer));
+                new ByteBufferErrorHandlingDeserializer<>(resourceChangedDataDeserializer));
     }
 
     @Bean
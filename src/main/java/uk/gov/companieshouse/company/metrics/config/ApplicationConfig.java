@@ -1,5 +1,7 @@
 package uk.gov.companieshouse.company.metrics.config;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.function.Supplier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -35,4 +37,12 @@ public class ApplicationConfig implements WebMvcConfigurer {
             return internalApiClient;
         };
     }
+
+    @Bean
+    HttpClient metricsApiHttpClient(
+            @Value("${company-metrics.consumer.async-http.timeout}") Long timeout) {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeout))
+                .build();
+    }
 }
@@ -2,8 +2,11 @@ package uk.gov.companieshouse.company.metrics.config;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,9 +20,18 @@ import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.KafkaUtils;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.company.metrics.exception.RetryableTopicErrorInterceptor;
+import uk.gov.companieshouse.company.metrics.logging.StructuredLoggingKafkaListenerInterceptor;
+import uk.gov.companieshouse.company.metrics.processor.RecalculationExecutor;
+import uk.gov.companieshouse.company.metrics.serialization.ByteBufferErrorHandlingDeserializer;
 import uk.gov.companieshouse.company.metrics.serialization.ResourceChangedDataDeserializer;
+import uk.gov.companieshouse.company.metrics.serialization.ResourceChangedDataProjectionDeserializer;
 import uk.gov.companieshouse.company.metrics.serialization.ResourceChangedDataSerializer;
 import uk.gov.companieshouse.stream.ResourceChangedData;
 
@@ -28,22 +40,53 @@ import uk.gov.companieshouse.stream.ResourceChangedData;
 @Profile("!test")
 public class KafkaConfig {
 
-    private final ResourceChangedDataDeserializer resourceChangedDataDeserializer;
+    private static final String RETRY_TOPIC_SUFFIX = "-retry";
+    private static final String ERROR_TOPIC_SUFFIX = "-error";
+
+    private final Deserializer<ResourceChangedData> resourceChangedDataDeserializer;
     private final ResourceChangedDataSerializer resourceChangedDataSerializer;
+    private final StructuredLoggingKafkaListenerInterceptor structuredLoggingInterceptor;
+    private final RecalculationExecutor recalculationExecutor;
     private String bootstrapServers;
     private final Integer listenerConcurrency;
+    private final Integer batchMaxPollRecords;
+    private final Integer batchRetryAttempts;
+    private final Long batchBackoffDelay;
+    private final Boolean batchEnabled;
 
     /**
-     * Kafka Consumer Factory Message.
+     * Kafka Consumer Factory Message. The projection deserializer is used when projection
+     * decoding is enabled, so only the fields needed to route a recalculation are decoded.
      */
     public KafkaConfig(ResourceChangedDataDeserializer resourceChangedDataDeserializer,
+                       ResourceChangedDataProjectionDeserializer
+                               resourceChangedDataProjectionDeserializer,
+                       @Value("${company-metrics.consumer.projection.enable}")
+                               Boolean projectionEnabled,
                        ResourceChangedDataSerializer resourceChangedDataSerializer,
+                       StructuredLoggingKafkaListenerInterceptor structuredLoggingInterceptor,
+                       RecalculationExecutor recalculationExecutor,
                        @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
-                       @Value("${spring.kafka.listener.concurrency}") Integer listenerConcurrency) {
-        this.resourceChangedDataDeserializer = resourceChangedDataDeserializer;
+                       @Value("${spring.kafka.listener.concurrency}") Integer listenerConcurrency,
+                       @Value("${company-metrics.consumer.batch.max-poll-records}")
+                               Integer batchMaxPollRecords,
+                       @Value("${company-metrics.consumer.batch.retry-attempts}")
+                               Integer batchRetryAttempts,
+                       @Value("${company-metrics.consumer.batch.backoff-delay}")
+                               Long batchBackoffDelay,
+                       @Value("${company-metrics.consumer.batch.enable}")
+                               Boolean batchEnabled) {
+        this.resourceChangedDataDeserializer = Boolean.TRUE.equals(projectionEnabled)
+                ? resourceChangedDataProjectionDeserializer : resourceChangedDataDeserializer;
         this.resourceChangedDataSerializer = resourceChangedDataSerializer;
+        this.structuredLoggingInterceptor = structuredLoggingInterceptor;
+        this.recalculationExecutor = recalculationExecutor;
         this.bootstrapServers = bootstrapServers;
         this.listenerConcurrency = listenerConcurrency;
+        this.batchMaxPollRecords = batchMaxPollRecords;
+        this.batchRetryAttempts = batchRetryAttempts;
+        this.batchBackoffDelay = batchBackoffDelay;
+        this.batchEnabled = batchEnabled;
     }
 
 
@@ -53,11 +96,20 @@ public class KafkaConfig {
     @Bean
     public ConsumerFactory<String, ResourceChangedData> consumerFactoryMessage() {
         return new DefaultKafkaConsumerFactory<>(consumerConfigs(), new StringDeserializer(),
-                new ErrorHandlingDeserializer<>(resourceChangedDataDeserializer));
+                new ByteBufferErrorHandlingDeserializer<>(resourceChangedDataDeserializer));
     }
 
     /**
-     * Kafka Listener Container Factory.
+     * Kafka Listener Container Factory. The structured logging context is set up for each
+     * record by the record interceptor. In batch mode the main topics are consumed by the batch
+     * listeners, so only the retry and error topic containers are started from this factory,
+     * leaving them to drain records published to the retry topics. The main and retry topic
+     * containers submit their recalculations to the recalculation executor, which pauses them
+     * while recalculations wait for capacity. The record listeners return the future of their
+     * recalculation, so spring-kafka overrides the RECORD ack mode with MANUAL and async acks
+     * for them, committing each offset once its recalculation completes. With debouncing, async
+     * HTTP and parallel processing disabled the future has completed by the time the listener
+     * returns, so each offset is acknowledged as it was before, and committed on the next poll.
      */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, ResourceChangedData>
@@ -67,9 +119,84 @@ public class KafkaConfig {
         factory.setConsumerFactory(consumerFactoryMessage());
         factory.setConcurrency(listenerConcurrency);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        factory.setRecordInterceptor(structuredLoggingInterceptor);
+        factory.setContainerCustomizer(container -> {
+            String[] topics = container.getContainerProperties().getTopics();
+            if (Boolean.TRUE.equals(batchEnabled) && isMainTopicContainer(topics)) {
+                container.setAutoStartup(false);
+            }
+            if (!isErrorTopicContainer(topics)) {
+                recalculationExecutor.addListenerContainer(container);
+            }
+        });
         return factory;
     }
 
+    /**
+     * Kafka Batch Listener Container Factory. Failed records are retried in place and then
+     * published to the error topic for the consumer group, or straight to the invalid topic
+     * when the failure is not retryable.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ResourceChangedData>
+             batchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, ResourceChangedData> factory
+                = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactoryMessage());
+        factory.setConcurrency(listenerConcurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setBatchInterceptor(structuredLoggingInterceptor);
+
+        Properties batchConsumerProperties = new Properties();
+        batchConsumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        factory.getContainerProperties().setKafkaConsumerProperties(batchConsumerProperties);
+
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(
+                kafkaTemplate(), (consumerRecord, ex) -> new TopicPartition(
+                        String.format("%s-%s-%s", consumerRecord.topic(),
+                                KafkaUtils.getConsumerGroupId(),
+                                isNonRetryable(ex) ? "invalid" : "error"), -1));
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer,
+                new FixedBackOff(batchBackoffDelay, batchRetryAttempts - 1L));
+        errorHandler.addNotRetryableExceptions(NonRetryableErrorException.class);
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
+    }
+
+    private static boolean isErrorTopicContainer(String[] topics) {
+        if (topics == null) {
+            return false;
+        }
+        for (String topic : topics) {
+            if (topic.endsWith(ERROR_TOPIC_SUFFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMainTopicContainer(String[] topics) {
+        if (topics == null) {
+            return false;
+        }
+        for (String topic : topics) {
+            if (topic.endsWith(RETRY_TOPIC_SUFFIX) || topic.endsWith(ERROR_TOPIC_SUFFIX)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNonRetryable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NonRetryableErrorException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private Map<String, Object> consumerConfigs() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
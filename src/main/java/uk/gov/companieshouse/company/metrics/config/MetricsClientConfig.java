@@ -1,39 +1,36 @@
 package uk.gov.companieshouse.company.metrics.config;
 
+import java.util.EnumMap;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import uk.gov.companieshouse.company.metrics.service.MetricsClient;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.company.metrics.type.EventType;
 
 @Configuration
 public class MetricsClientConfig {
 
-    private static final String CHARGES = "charges";
-    private static final String CHANGED = "changed";
-    private static final String DELETED = "deleted";
-    private static final String OFFICERS = "officers";
-    private static final String PSCS = "pscs";
-    private static final String REGISTERS = "registers";
-
     @Bean
-    Map<String, Map<String, MetricsClient>> metricsClientMap(
+    Map<DeltaType, Map<EventType, MetricsClient>> metricsClientMap(
             @Qualifier("chargesClient") MetricsClient chargesClient,
             @Qualifier("appointmentsClient") MetricsClient appointmentsClient,
             @Qualifier("pscsClient") MetricsClient pscsClient,
             @Qualifier("registersClient") MetricsClient registersClient) {
-        return Map.of(
-                CHARGES, Map.of(
-                        CHANGED, chargesClient,
-                        DELETED, chargesClient),
-                OFFICERS, Map.of(
-                        CHANGED, appointmentsClient,
-                        DELETED, appointmentsClient),
-                PSCS, Map.of(
-                        CHANGED, pscsClient,
-                        DELETED, pscsClient),
-                REGISTERS, Map.of(
-                        CHANGED, registersClient,
-                        DELETED, registersClient));
+        Map<DeltaType, Map<EventType, MetricsClient>> metricsClientMap =
+                new EnumMap<>(DeltaType.class);
+        metricsClientMap.put(DeltaType.CHARGES, forEveryEventType(chargesClient));
+        metricsClientMap.put(DeltaType.OFFICERS, forEveryEventType(appointmentsClient));
+        metricsClientMap.put(DeltaType.PSCS, forEveryEventType(pscsClient));
+        metricsClientMap.put(DeltaType.REGISTERS, forEveryEventType(registersClient));
+        return metricsClientMap;
+    }
+
+    private static Map<EventType, MetricsClient> forEveryEventType(MetricsClient client) {
+        Map<EventType, MetricsClient> clients = new EnumMap<>(EventType.class);
+        clients.put(EventType.CHANGED, client);
+        clients.put(EventType.DELETED, client);
+        return clients;
     }
 }
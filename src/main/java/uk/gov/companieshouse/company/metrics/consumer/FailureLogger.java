@@ -0,0 +1,57 @@
+package uk.gov.companieshouse.company.metrics.consumer;
+
+import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.logging.LogContext;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+
+/**
+ * Logs a recalculation that fails after the listener has returned its future, with the context
+ * id of the delta and the log map of the record, as the listeners log a failure thrown while
+ * routing. A recalculation that has already completed, as every one does when debouncing, async
+ * HTTP and parallel processing are disabled, is logged on the listener thread without capturing
+ * its log context.
+ */
+final class FailureLogger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
+
+    private FailureLogger() {
+    }
+
+    /**
+     * Logs the recalculation if it fails, returning it unchanged so the failure still reaches
+     * the container.
+     */
+    static CompletableFuture<Void> logFailure(CompletableFuture<Void> recalculation,
+            String contextId, String message) {
+        if (recalculation.isDone()) {
+            if (recalculation.state() == Future.State.FAILED) {
+                log(contextId, message, recalculation.exceptionNow(),
+                        DataMapHolder.getLogMap());
+            }
+            return recalculation;
+        }
+        LogContext context = DataMapHolder.capture();
+        recalculation.whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                log(contextId, message, throwable, context.getLogMap());
+            }
+        });
+        return recalculation;
+    }
+
+    private static void log(String contextId, String message, Throwable throwable,
+            Map<String, Object> logMap) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        LOGGER.errorContext(contextId, message, cause instanceof Exception exception
+                ? exception : new IllegalStateException(cause), logMap);
+    }
+}
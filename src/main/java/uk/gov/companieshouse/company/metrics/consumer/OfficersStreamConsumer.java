@@ -2,8 +2,12 @@ package uk.gov.companieshouse.company.metrics.consumer;
 
 import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
 import org.springframework.kafka.retrytopic.SameIntervalTopicReuseStrategy;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
@@ -12,8 +16,9 @@ import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.processor.BatchMetricsRouter;
 import uk.gov.companieshouse.company.metrics.processor.MetricsRouter;
-import uk.gov.companieshouse.company.metrics.type.ResourceChange;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
 import uk.gov.companieshouse.stream.ResourceChangedData;
@@ -23,11 +28,13 @@ public class OfficersStreamConsumer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
 
-    private static final String OFFICER_DELTA_TYPE = "officers";
     private final MetricsRouter router;
+    private final BatchMetricsRouter batchRouter;
+    private final UpdatedByCache updatedByCache = new UpdatedByCache();
 
-    public OfficersStreamConsumer(MetricsRouter router) {
+    public OfficersStreamConsumer(MetricsRouter router, BatchMetricsRouter batchRouter) {
         this.router = router;
+        this.batchRouter = batchRouter;
     }
 
     /**
@@ -35,8 +42,12 @@ public class OfficersStreamConsumer {
      */
     @RetryableTopic(
             attempts = "${company-metrics.consumer.appointments.stream.retry-attempts}",
-            backoff = @Backoff(delayExpression =
-                    "${company-metrics.consumer.appointments.stream.backoff-delay}"),
+            backoff = @Backoff(
+                    delayExpression = "${company-metrics.consumer.appointments.stream.backoff-delay}",
+                    multiplierExpression =
+                            "${company-metrics.consumer.appointments.stream.backoff-multiplier}",
+                    maxDelayExpression =
+                            "${company-metrics.consumer.appointments.stream.backoff-max-delay}"),
             sameIntervalTopicReuseStrategy = SameIntervalTopicReuseStrategy.SINGLE_TOPIC,
             retryTopicSuffix = "-${company-metrics.consumer.appointments.stream.group-id}-retry",
             dltTopicSuffix = "-${company-metrics.consumer.appointments.stream.group-id}-error",
@@ -48,21 +59,37 @@ public class OfficersStreamConsumer {
             groupId = "${company-metrics.consumer.appointments.stream.group-id}",
             autoStartup = "${company-metrics.consumer.appointments.stream.enable}",
             containerFactory = "listenerContainerFactory")
-    public void receive(Message<ResourceChangedData> resourceChangedDataMessage,
-                        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                        @Header(KafkaHeaders.RECEIVED_PARTITION) String partition,
-                        @Header(KafkaHeaders.OFFSET) String offset) {
-        LOGGER.info("Resource changed message received", DataMapHolder.getLogMap());
-
+    public CompletableFuture<Void> receive(
+            Message<ResourceChangedData> resourceChangedDataMessage,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset,
+            @Header(name = RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS, required = false)
+                    byte[] retryAttempts) {
         ResourceChangedData payload = resourceChangedDataMessage.getPayload();
-
         try {
-            final String updatedBy = String.format("%s-%s-%s", topic, partition, offset);
-            router.route(new ResourceChange(payload), OFFICER_DELTA_TYPE, updatedBy);
-            LOGGER.debug("Company appointments message processed", DataMapHolder.getLogMap());
+            return FailureLogger.logFailure(router.route(payload, DeltaType.OFFICERS,
+                    updatedByCache.updatedBy(topic, partition, offset),
+                    retryAttempts != null), payload.getContextId(),
+                    "Exception processing message.");
         } catch (Exception exception) {
-            LOGGER.error("Exception processing message.", DataMapHolder.getLogMap());
+            LOGGER.errorContext(payload.getContextId(), "Exception processing message.",
+                    exception, DataMapHolder.getLogMap());
             throw exception;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Receives main topic messages in batches when batch mode is enabled.
+     */
+    @KafkaListener(
+            id = "${company-metrics.consumer.appointments.stream.topic}-batch-consumer",
+            topics = "${company-metrics.consumer.appointments.stream.topic}",
+            groupId = "${company-metrics.consumer.appointments.stream.group-id}",
+            autoStartup = "#{${company-metrics.consumer.appointments.stream.enable} "
+                    + "and ${company-metrics.consumer.batch.enable}}",
+            containerFactory = "batchListenerContainerFactory")
+    public void receiveBatch(List<ConsumerRecord<String, ResourceChangedData>> records) {
+        batchRouter.route(records, DeltaType.OFFICERS);
+    }
+}
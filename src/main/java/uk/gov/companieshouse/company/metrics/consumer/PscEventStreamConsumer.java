@@ -2,8 +2,12 @@ package uk.gov.companieshouse.company.metrics.consumer;
 
 import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
 import org.springframework.kafka.retrytopic.SameIntervalTopicReuseStrategy;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
@@ -11,8 +15,10 @@ import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.processor.BatchMetricsRouter;
 import uk.gov.companieshouse.company.metrics.processor.MetricsRouter;
-import uk.gov.companieshouse.company.metrics.type.ResourceChange;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
 import uk.gov.companieshouse.stream.ResourceChangedData;
@@ -22,12 +28,14 @@ import uk.gov.companieshouse.stream.ResourceChangedData;
 public class PscEventStreamConsumer {
 
 
-    private static final String PSC_DELTA_TYPE = "pscs";
     private final MetricsRouter router;
+    private final BatchMetricsRouter batchRouter;
+    private final UpdatedByCache updatedByCache = new UpdatedByCache();
     private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
 
-    public PscEventStreamConsumer(MetricsRouter router) {
+    public PscEventStreamConsumer(MetricsRouter router, BatchMetricsRouter batchRouter) {
         this.router = router;
+        this.batchRouter = batchRouter;
     }
 
     /**
@@ -35,8 +43,12 @@ public class PscEventStreamConsumer {
      */
     @RetryableTopic(
             attempts = "${company-metrics.consumer.psc-events.stream.retry-attempts}",
-            backoff = @Backoff(delayExpression =
-                    "${company-metrics.consumer.psc-events.stream.backoff-delay}"),
+            backoff = @Backoff(
+                    delayExpression = "${company-metrics.consumer.psc-events.stream.backoff-delay}",
+                    multiplierExpression =
+                            "${company-metrics.consumer.psc-events.stream.backoff-multiplier}",
+                    maxDelayExpression =
+                            "${company-metrics.consumer.psc-events.stream.backoff-max-delay}"),
             sameIntervalTopicReuseStrategy = SameIntervalTopicReuseStrategy.SINGLE_TOPIC,
             retryTopicSuffix = "-${company-metrics.consumer.psc-events.stream.group-id}-retry",
             dltTopicSuffix = "-${company-metrics.consumer.psc-events.stream.group-id}-error",
@@ -48,24 +60,38 @@ public class PscEventStreamConsumer {
             groupId = "${company-metrics.consumer.psc-events.stream.group-id}",
             autoStartup = "${company-metrics.consumer.psc-events.stream.enable}",
             containerFactory = "listenerContainerFactory")
-    public void receive(Message<ResourceChangedData> resourceChangedDataMessage,
-                        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                        @Header(KafkaHeaders.RECEIVED_PARTITION) String partition,
-                        @Header(KafkaHeaders.OFFSET) String offset) {
+    public CompletableFuture<Void> receive(
+            Message<ResourceChangedData> resourceChangedDataMessage,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset,
+            @Header(name = RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS, required = false)
+                    byte[] retryAttempts) {
         ResourceChangedData payload = resourceChangedDataMessage.getPayload();
-        String contextId = payload.getContextId();
-        LOGGER.info(String.format(
-                "New message picked up. Topic: %s; Partition: %s; Offset: %s; ContextId: %s",
-                topic, partition, offset, contextId));
         try {
-            final String updatedBy = String.format("%s-%s-%s", topic, partition, offset);
-            router.route(new ResourceChange(payload), PSC_DELTA_TYPE, updatedBy);
-            LOGGER.debug(String.format("Company PSC message processed. ContextId: %s",
-                    contextId));
+            return FailureLogger.logFailure(router.route(payload, DeltaType.PSCS,
+                    updatedByCache.updatedBy(topic, partition, offset),
+                    retryAttempts != null), payload.getContextId(),
+                    "Exception occurred while processing message");
         } catch (Exception exception) {
-            LOGGER.error(String.format("Exception processing message. Topic: %s; Offset: %s",
-                    topic, offset));
+            LOGGER.errorContext(payload.getContextId(),
+                    "Exception occurred while processing message", exception,
+                    DataMapHolder.getLogMap());
             throw exception;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Receives main topic messages in batches when batch mode is enabled.
+     */
+    @KafkaListener(
+            id = "${company-metrics.consumer.psc-events.stream.topic}-batch-consumer",
+            topics = "#{'${company-metrics.consumer.psc-events.stream.topic}'.split(',')}",
+            groupId = "${company-metrics.consumer.psc-events.stream.group-id}",
+            autoStartup = "#{${company-metrics.consumer.psc-events.stream.enable} "
+                    + "and ${company-metrics.consumer.batch.enable}}",
+            containerFactory = "batchListenerContainerFactory")
+    public void receiveBatch(List<ConsumerRecord<String, ResourceChangedData>> records) {
+        batchRouter.route(records, DeltaType.PSCS);
+    }
+}
@@ -2,11 +2,13 @@ package uk.gov.companieshouse.company.metrics.consumer;
 
 import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.RetryableTopic;
 import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
 import org.springframework.kafka.retrytopic.SameIntervalTopicReuseStrategy;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
@@ -15,8 +17,9 @@ import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.processor.BatchMetricsRouter;
 import uk.gov.companieshouse.company.metrics.processor.MetricsRouter;
-import uk.gov.companieshouse.company.metrics.type.ResourceChange;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
 import uk.gov.companieshouse.stream.ResourceChangedData;
@@ -28,17 +31,24 @@ public class RegistersStreamConsumer {
     private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
 
     private final MetricsRouter registersRouter;
+    private final BatchMetricsRouter batchRouter;
+    private final UpdatedByCache updatedByCache = new UpdatedByCache();
 
-    public RegistersStreamConsumer(MetricsRouter registersRouter) {
+    public RegistersStreamConsumer(MetricsRouter registersRouter, BatchMetricsRouter batchRouter) {
         this.registersRouter = registersRouter;
+        this.batchRouter = batchRouter;
     }
 
     /**
      * Receives Main topic messages.
      */
     @RetryableTopic(attempts = "${company-metrics.consumer.registers.stream.retry-attempts}",
-            backoff = @Backoff(delayExpression =
-                    "${company-metrics.consumer.registers.stream.backoff-delay}"),
+            backoff = @Backoff(
+                    delayExpression = "${company-metrics.consumer.registers.stream.backoff-delay}",
+                    multiplierExpression =
+                            "${company-metrics.consumer.registers.stream.backoff-multiplier}",
+                    maxDelayExpression =
+                            "${company-metrics.consumer.registers.stream.backoff-max-delay}"),
             sameIntervalTopicReuseStrategy = SameIntervalTopicReuseStrategy.SINGLE_TOPIC,
             retryTopicSuffix = "-${company-metrics.consumer.registers.stream.group-id}-retry",
             dltTopicSuffix = "-${company-metrics.consumer.registers.stream.group-id}-error",
@@ -49,27 +59,38 @@ public class RegistersStreamConsumer {
             groupId = "${company-metrics.consumer.registers.stream.group-id}",
             autoStartup = "${company-metrics.consumer.registers.stream.enable}",
             containerFactory = "listenerContainerFactory")
-    public void receive(Message<ResourceChangedData> resourceChangedMessage,
-                        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-                        @Header(KafkaHeaders.RECEIVED_PARTITION) String partition,
-                        @Header(KafkaHeaders.OFFSET) String offset) {
-        Instant startTime = Instant.now();
+    public CompletableFuture<Void> receive(
+            Message<ResourceChangedData> resourceChangedMessage,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset,
+            @Header(name = RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS, required = false)
+                    byte[] retryAttempts) {
         ResourceChangedData payload = resourceChangedMessage.getPayload();
-        String contextId = payload.getContextId();
-        LOGGER.info("Resource changed message received", DataMapHolder.getLogMap());
-
         try {
-            final String updatedBy = String.format("%s-%s-%s", topic, partition, offset);
-
-            registersRouter.route(new ResourceChange(payload), "registers", updatedBy);
-            LOGGER.info(String.format("Registers Metrics message processed in %d milliseconds",
-                    Duration.between(startTime, Instant.now()).toMillis()),
-                    DataMapHolder.getLogMap());
+            return FailureLogger.logFailure(registersRouter.route(payload, DeltaType.REGISTERS,
+                    updatedByCache.updatedBy(topic, partition, offset),
+                    retryAttempts != null), payload.getContextId(),
+                    "Exception occurred while processing message");
         } catch (Exception exception) {
-            LOGGER.errorContext(contextId, "Exception occurred while processing message",
-                    exception, DataMapHolder.getLogMap());
+            LOGGER.errorContext(payload.getContextId(),
+                    "Exception occurred while processing message", exception,
+                    DataMapHolder.getLogMap());
             throw exception;
         }
     }
 
+    /**
+     * Receives main topic messages in batches when batch mode is enabled.
+     */
+    @KafkaListener(
+            id = "${company-metrics.consumer.registers.stream.topic}-batch-consumer",
+            topics = "${company-metrics.consumer.registers.stream.topic}",
+            groupId = "${company-metrics.consumer.registers.stream.group-id}",
+            autoStartup = "#{${company-metrics.consumer.registers.stream.enable} "
+                    + "and ${company-metrics.consumer.batch.enable}}",
+            containerFactory = "batchListenerContainerFactory")
+    public void receiveBatch(List<ConsumerRecord<String, ResourceChangedData>> records) {
+        batchRouter.route(records, DeltaType.REGISTERS);
+    }
 }
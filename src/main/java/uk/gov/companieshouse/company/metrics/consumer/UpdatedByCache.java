@@ -0,0 +1,38 @@
+package uk.gov.companieshouse.company.metrics.consumer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the updated by value, topic-partition-offset, of each consumed record. The
+ * topic-partition prefix is built the first time a partition is seen and cached, so a record
+ * costs only the concatenation of its offset. The prefixes for a topic are held in an array
+ * indexed by partition that is replaced rather than written to, so it is read without locking.
+ */
+final class UpdatedByCache {
+
+    private static final String[] NO_PREFIXES = new String[0];
+
+    private final Map<String, String[]> prefixes = new ConcurrentHashMap<>();
+
+    String updatedBy(String topic, int partition, long offset) {
+        String[] topicPrefixes = prefixes.get(topic);
+        String prefix = topicPrefixes != null && partition < topicPrefixes.length
+                ? topicPrefixes[partition] : null;
+        if (prefix == null) {
+            prefix = cache(topic, partition);
+        }
+        return prefix + offset;
+    }
+
+    private synchronized String cache(String topic, int partition) {
+        String[] topicPrefixes = prefixes.getOrDefault(topic, NO_PREFIXES);
+        topicPrefixes = Arrays.copyOf(topicPrefixes, Math.max(topicPrefixes.length,
+                partition + 1));
+        String prefix = topic + "-" + partition + "-";
+        topicPrefixes[partition] = prefix;
+        prefixes.put(topic, topicPrefixes);
+        return prefix;
+    }
+}
@@ -1,16 +1,41 @@
 package uk.gov.companieshouse.company.metrics.exception;
 
+import java.util.OptionalLong;
+
 public class RetryableErrorException extends RuntimeException {
+
+    private static final long NO_RETRY_DELAY = -1L;
+
+    private final long retryDelay;
+
     public RetryableErrorException(String message) {
         super(message);
+        this.retryDelay = NO_RETRY_DELAY;
     }
 
     public RetryableErrorException(String message, Exception exception) {
         super(message, exception);
+        this.retryDelay = NO_RETRY_DELAY;
     }
 
     public RetryableErrorException(Exception exception) {
         super(exception);
+        this.retryDelay = NO_RETRY_DELAY;
     }
-}
 
+    /**
+     * Constructs a RetryableErrorException for a failure that sets how long to wait, in
+     * milliseconds, before retrying.
+     */
+    public RetryableErrorException(String message, Exception exception, long retryDelay) {
+        super(message, exception);
+        this.retryDelay = Math.max(0L, retryDelay);
+    }
+
+    /**
+     * Returns how long to wait before retrying, in milliseconds, when the failure set it.
+     */
+    public OptionalLong getRetryDelay() {
+        return retryDelay == NO_RETRY_DELAY ? OptionalLong.empty() : OptionalLong.of(retryDelay);
+    }
+}
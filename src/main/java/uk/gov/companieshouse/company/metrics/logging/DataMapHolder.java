@@ -1,39 +1,97 @@
 package uk.gov.companieshouse.company.metrics.logging;
 
 import java.util.Map;
-import uk.gov.companieshouse.logging.util.DataMap.Builder;
+import java.util.function.Supplier;
 
+/**
+ * Holds the log context of the work running on the current thread. A listener thread reuses one
+ * context for every message it receives, clearing it between them. Work handed to another
+ * thread, whether an executor, a scheduler or the completion of an HTTP request, captures the
+ * context when it is handed over and runs with it, so the request id and company number follow
+ * the work. The context the running thread held before is restored afterwards, so work that
+ * happens to complete on the thread that handed it over does not clear that thread's context,
+ * and a thread that held none, such as a virtual thread started for the work, is left with none.
+ */
 public class DataMapHolder {
 
-    private static final ThreadLocal<Builder> DATAMAP_BUILDER
-            = ThreadLocal.withInitial(() -> new Builder().requestId("uninitialised"));
+    private static final ThreadLocal<LogContext> LOG_CONTEXT = new ThreadLocal<>();
 
     public static void initialise(String requestId) {
-        DATAMAP_BUILDER.get().requestId(requestId);
+        get().requestId(requestId);
     }
 
     private DataMapHolder() {
     }
 
+    /**
+     * Resets the log context of the current thread so it can be reused for the next message.
+     */
     public static void clear() {
-        DATAMAP_BUILDER.remove();
+        LogContext context = LOG_CONTEXT.get();
+        if (context != null) {
+            context.clear();
+        }
+    }
+
+    /**
+     * Returns the log context of the current thread, creating it if the thread has none.
+     */
+    public static LogContext get() {
+        LogContext context = LOG_CONTEXT.get();
+        if (context == null) {
+            context = new LogContext();
+            LOG_CONTEXT.set(context);
+        }
+        return context;
+    }
+
+    /**
+     * Returns a copy of the log context of the current thread, to run work handed to another
+     * thread with. Changes made to the copy do not affect the current thread, nor the reverse.
+     */
+    public static LogContext capture() {
+        LogContext context = LOG_CONTEXT.get();
+        return context != null ? context.copy() : new LogContext();
+    }
+
+    /**
+     * Runs the work with the captured log context, then restores the context the current thread
+     * held before. A captured context belongs to the work it was captured for, and is changed by
+     * it, so should not be run with on two threads at once.
+     */
+    public static <T> T callWith(LogContext context, Supplier<T> work) {
+        LogContext previous = LOG_CONTEXT.get();
+        LOG_CONTEXT.set(context);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                LOG_CONTEXT.set(previous);
+            } else {
+                LOG_CONTEXT.remove();
+            }
+        }
     }
 
-    public static Builder get() {
-        return DATAMAP_BUILDER.get();
+    /**
+     * Returns work that runs with the log context of the current thread when it was handed over,
+     * changed to the given company number.
+     */
+    public static <T> Supplier<T> propagate(String companyNumber, Supplier<T> work) {
+        LogContext context = capture().companyNumber(companyNumber);
+        return () -> callWith(context, work);
     }
 
     /**
-     * Populates and returns a Map of the current DataMap values.
+     * Returns the log map of the current log context, which is only rebuilt when one of its
+     * values has changed.
      * @return Populated log map
      */
     public static Map<String, Object> getLogMap() {
-        return DATAMAP_BUILDER.get()
-                .build()
-                .getLogMap();
+        return get().getLogMap();
     }
 
     public static String getRequestId() {
-        return (String) getLogMap().get("request_id");
+        return get().getRequestId();
     }
 }
@@ -0,0 +1,161 @@
+package uk.gov.companieshouse.company.metrics.logging;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The structured logging fields of the message being processed on a thread. Fields are held
+ * directly, so reading one does not build a map, and the log map is built only when it is
+ * first asked for after a field changes. A built map is unmodifiable, so one already passed
+ * to a logger or shared with a captured copy is unaffected by later changes to either context.
+ * The map has the keys of the structured logging DataMap.
+ */
+public class LogContext {
+
+    static final String UNINITIALISED = "uninitialised";
+
+    private static final String REQUEST_ID = "request_id";
+    private static final String COMPANY_NUMBER = "company_number";
+    private static final String TOPIC = "topic";
+    private static final String PARTITION = "partition";
+    private static final String OFFSET = "offset";
+    private static final String STATUS = "status";
+    private static final int FIELDS = 6;
+
+    private String requestId = UNINITIALISED;
+    private String companyNumber;
+    private String topic;
+    private Integer partition;
+    private Long offset;
+    private Integer status;
+    private Map<String, Object> logMap;
+
+    LogContext() {
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getCompanyNumber() {
+        return companyNumber;
+    }
+
+    /**
+     * Sets the request id.
+     */
+    public LogContext requestId(String requestId) {
+        if (!Objects.equals(this.requestId, requestId)) {
+            this.requestId = requestId;
+            this.logMap = null;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the company number.
+     */
+    public LogContext companyNumber(String companyNumber) {
+        if (!Objects.equals(this.companyNumber, companyNumber)) {
+            this.companyNumber = companyNumber;
+            this.logMap = null;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the topic.
+     */
+    public LogContext topic(String topic) {
+        if (!Objects.equals(this.topic, topic)) {
+            this.topic = topic;
+            this.logMap = null;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the partition.
+     */
+    public LogContext partition(Integer partition) {
+        if (!Objects.equals(this.partition, partition)) {
+            this.partition = partition;
+            this.logMap = null;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the offset.
+     */
+    public LogContext offset(Long offset) {
+        if (!Objects.equals(this.offset, offset)) {
+            this.offset = offset;
+            this.logMap = null;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the status of the response from company-metrics-api.
+     */
+    public LogContext status(Integer status) {
+        if (!Objects.equals(this.status, status)) {
+            this.status = status;
+            this.logMap = null;
+        }
+        return this;
+    }
+
+    /**
+     * Returns an unmodifiable log map of the fields that are set, building it only if a field
+     * has changed since it was last built.
+     */
+    public Map<String, Object> getLogMap() {
+        if (logMap == null) {
+            Map<String, Object> map = HashMap.newHashMap(FIELDS);
+            map.put(REQUEST_ID, requestId);
+            putIfSet(map, COMPANY_NUMBER, companyNumber);
+            putIfSet(map, TOPIC, topic);
+            putIfSet(map, PARTITION, partition);
+            putIfSet(map, OFFSET, offset);
+            putIfSet(map, STATUS, status);
+            logMap = Collections.unmodifiableMap(map);
+        }
+        return logMap;
+    }
+
+    /**
+     * Returns a copy of the context that can be changed independently of it. The built log map,
+     * which is unmodifiable, is shared.
+     */
+    LogContext copy() {
+        LogContext copy = new LogContext();
+        copy.requestId = requestId;
+        copy.companyNumber = companyNumber;
+        copy.topic = topic;
+        copy.partition = partition;
+        copy.offset = offset;
+        copy.status = status;
+        copy.logMap = logMap;
+        return copy;
+    }
+
+    private static void putIfSet(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    void clear() {
+        requestId = UNINITIALISED;
+        companyNumber = null;
+        topic = null;
+        partition = null;
+        offset = null;
+        status = null;
+        logMap = null;
+    }
+}
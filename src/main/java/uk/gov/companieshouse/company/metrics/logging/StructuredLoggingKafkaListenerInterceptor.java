@@ -0,0 +1,126 @@
+package uk.gov.companieshouse.company.metrics.logging;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+/**
+ * Sets up the structured logging context of the consumer thread before a listener is invoked
+ * and clears it once the record, or batch, has been processed. Registered on the listener
+ * container factories, so the topic, partition and offset are read from the consumer record
+ * itself rather than from the headers of a message through a proxy around every listener.
+ * Receipt and processing of each record are logged at info here, once for every listener,
+ * and the messages are only built when info logging is enabled.
+ */
+@Component
+public class StructuredLoggingKafkaListenerInterceptor
+        implements RecordInterceptor<String, ResourceChangedData>,
+        BatchInterceptor<String, ResourceChangedData> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE);
+
+    private static final String LOG_MESSAGE_RECEIVED = "Processing delta";
+    private static final String LOG_MESSAGE_PROCESSED = "Processed delta";
+    private static final String RECORD_RECEIVED = "Resource changed message received";
+    private static final String RECORD_PROCESSED =
+            "Resource changed message processed in %d milliseconds";
+    private static final String EXCEPTION_MESSAGE = "%s exception thrown: %s";
+
+    private static final ThreadLocal<long[]> RECEIVED_NANOS = ThreadLocal.withInitial(
+            () -> new long[1]);
+
+    @Override
+    public ConsumerRecord<String, ResourceChangedData> intercept(
+            ConsumerRecord<String, ResourceChangedData> consumerRecord,
+            Consumer<String, ResourceChangedData> consumer) {
+        DataMapHolder.initialise(contextId(consumerRecord.value()));
+        DataMapHolder.get()
+                .topic(consumerRecord.topic())
+                .partition(consumerRecord.partition())
+                .offset(consumerRecord.offset());
+
+        if (LOGGER.isInfoEnabled()) {
+            RECEIVED_NANOS.get()[0] = System.nanoTime();
+            LOGGER.info(RECORD_RECEIVED, DataMapHolder.getLogMap());
+        }
+        return consumerRecord;
+    }
+
+    @Override
+    public void success(ConsumerRecord<String, ResourceChangedData> consumerRecord,
+                        Consumer<String, ResourceChangedData> consumer) {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format(RECORD_PROCESSED, TimeUnit.NANOSECONDS.toMillis(
+                    System.nanoTime() - RECEIVED_NANOS.get()[0])), DataMapHolder.getLogMap());
+        }
+    }
+
+    @Override
+    public void failure(ConsumerRecord<String, ResourceChangedData> consumerRecord,
+                        Exception exception,
+                        Consumer<String, ResourceChangedData> consumer) {
+        logFailure(exception);
+    }
+
+    @Override
+    public void afterRecord(ConsumerRecord<String, ResourceChangedData> consumerRecord,
+                            Consumer<String, ResourceChangedData> consumer) {
+        DataMapHolder.clear();
+    }
+
+    /**
+     * Batch listeners receive a list of records, each routed under its own context, so the
+     * batch itself is only given a request id.
+     */
+    @Override
+    public ConsumerRecords<String, ResourceChangedData> intercept(
+            ConsumerRecords<String, ResourceChangedData> consumerRecords,
+            Consumer<String, ResourceChangedData> consumer) {
+        DataMapHolder.initialise(UUID.randomUUID().toString());
+
+        LOGGER.debug(LOG_MESSAGE_RECEIVED, DataMapHolder.getLogMap());
+        return consumerRecords;
+    }
+
+    @Override
+    public void success(ConsumerRecords<String, ResourceChangedData> consumerRecords,
+                        Consumer<String, ResourceChangedData> consumer) {
+        LOGGER.debug(LOG_MESSAGE_PROCESSED, DataMapHolder.getLogMap());
+        DataMapHolder.clear();
+    }
+
+    @Override
+    public void failure(ConsumerRecords<String, ResourceChangedData> consumerRecords,
+                        Exception exception,
+                        Consumer<String, ResourceChangedData> consumer) {
+        logFailure(exception);
+        DataMapHolder.clear();
+    }
+
+    private static void logFailure(Exception exception) {
+        LOGGER.debug(String.format(EXCEPTION_MESSAGE,
+                        exception.getClass().getSimpleName(), exception.getMessage()),
+                DataMapHolder.getLogMap());
+    }
+
+    /**
+     * Returns the context id of the delta, or a new id when the record could not be
+     * deserialised or carries none.
+     */
+    private static String contextId(ResourceChangedData payload) {
+        if (payload != null && payload.getContextId() != null) {
+            return payload.getContextId();
+        }
+        return UUID.randomUUID().toString();
+    }
+}
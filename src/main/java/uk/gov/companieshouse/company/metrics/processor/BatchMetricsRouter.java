@@ -0,0 +1,176 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.service.CompanyNumberExtractable;
+import uk.gov.companieshouse.company.metrics.service.CompanyNumberValidator;
+import uk.gov.companieshouse.company.metrics.service.MetricsClient;
+import uk.gov.companieshouse.company.metrics.service.MetricsClientFactory;
+import uk.gov.companieshouse.company.metrics.type.CompanyKey;
+import uk.gov.companieshouse.company.metrics.type.CompanyKeyMap;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.company.metrics.type.EventType;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+/**
+ * Routes a polled batch of resource changed records, collapsing them to a single
+ * recalculation per company number and delta type before posting to company-metrics-api.
+ */
+@Component
+public class BatchMetricsRouter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
+
+    private static final String BATCH_RECORDS_METRIC = "company.metrics.batch.records";
+    private static final String BATCH_POSTS_SAVED_METRIC = "company.metrics.batch.posts.saved";
+    private static final String DELTA_TYPE_TAG = "delta_type";
+    private static final String DESERIALISATION_ERROR =
+            "Record at offset %d on topic %s could not be deserialised";
+    private static final String BATCH_SUMMARY =
+            "Batch of %d %s records collapsed to %d recalculations, %d POSTs saved";
+
+    private final CompanyNumberExtractable extractor;
+    private final CompanyNumberValidator validator;
+    private final MetricsClientFactory factory;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a BatchMetricsRouter.
+     */
+    public BatchMetricsRouter(CompanyNumberExtractable extractor,
+                              CompanyNumberValidator validator, MetricsClientFactory factory,
+                              MeterRegistry meterRegistry) {
+        this.extractor = extractor;
+        this.validator = validator;
+        this.factory = factory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Collapses the batch to one recalculation per company number and delta type and posts
+     * each in order of first appearance. When a recalculation fails a
+     * {@link BatchListenerFailedException} is thrown against the first record it covers, so
+     * every earlier record in the batch has already been covered by a successful call.
+     *
+     * @param records   The records received in a single poll.
+     * @param deltaType The type of delta the records were received for.
+     */
+    public void route(List<ConsumerRecord<String, ResourceChangedData>> records,
+                      DeltaType deltaType) {
+        // recalculations in order of first appearance, with those for each company chained
+        // from the company's key so records are collapsed without a String key per record
+        List<Recalculation> recalculations = new ArrayList<>();
+        CompanyKeyMap<Recalculation> byCompany = new CompanyKeyMap<>(records.size());
+
+        for (int index = 0; index < records.size(); index++) {
+            ConsumerRecord<String, ResourceChangedData> consumerRecord = records.get(index);
+            ResourceChangedData payload = consumerRecord.value();
+            if (payload == null) {
+                // failed records are never collapsed
+                recalculations.add(Recalculation.failed(index,
+                        new NonRetryableErrorException(String.format(DESERIALISATION_ERROR,
+                                consumerRecord.offset(), consumerRecord.topic()))));
+                continue;
+            }
+
+            long companyKey;
+            try {
+                companyKey = validator.validate(
+                        extractor.extractCompanyKey(payload.getResourceUri()));
+            } catch (NonRetryableErrorException ex) {
+                recalculations.add(Recalculation.failed(index, ex));
+                continue;
+            }
+
+            MetricsClient client = factory.getMetricsClient(deltaType,
+                    EventType.of(payload.getEvent().getType()));
+            Recalculation first = byCompany.get(companyKey);
+            Recalculation recalculation = first;
+            while (recalculation != null && recalculation.client != client) {
+                recalculation = recalculation.sameCompany;
+            }
+            if (recalculation == null) {
+                recalculation = new Recalculation(index, companyKey, client, first);
+                byCompany.put(companyKey, recalculation);
+                recalculations.add(recalculation);
+            }
+            recalculation.cover(consumerRecord);
+        }
+
+        int saved = records.size() - recalculations.size();
+        meterRegistry.counter(BATCH_RECORDS_METRIC, DELTA_TYPE_TAG, deltaType.getValue())
+                .increment(records.size());
+        meterRegistry.counter(BATCH_POSTS_SAVED_METRIC, DELTA_TYPE_TAG, deltaType.getValue())
+                .increment(saved);
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info(String.format(BATCH_SUMMARY, records.size(), deltaType.getValue(),
+                    recalculations.size(), saved), DataMapHolder.getLogMap());
+        }
+
+        for (Recalculation recalculation : recalculations) {
+            recalculation.post(records.get(recalculation.firstIndex));
+        }
+    }
+
+    private static final class Recalculation {
+
+        private final int firstIndex;
+        private final long companyKey;
+        private final MetricsClient client;
+        private final Recalculation sameCompany;
+        private final RuntimeException failure;
+        private ConsumerRecord<String, ResourceChangedData> latest;
+
+        private Recalculation(int firstIndex, long companyKey, MetricsClient client,
+                              Recalculation sameCompany) {
+            this(firstIndex, companyKey, client, sameCompany, null);
+        }
+
+        private Recalculation(int firstIndex, long companyKey, MetricsClient client,
+                              Recalculation sameCompany, RuntimeException failure) {
+            this.firstIndex = firstIndex;
+            this.companyKey = companyKey;
+            this.client = client;
+            this.sameCompany = sameCompany;
+            this.failure = failure;
+        }
+
+        static Recalculation failed(int index, RuntimeException failure) {
+            return new Recalculation(index, 0L, null, null, failure);
+        }
+
+        void cover(ConsumerRecord<String, ResourceChangedData> consumerRecord) {
+            this.latest = consumerRecord;
+        }
+
+        void post(ConsumerRecord<String, ResourceChangedData> first) {
+            if (failure != null) {
+                throw new BatchListenerFailedException(failure.getMessage(), failure, first);
+            }
+            String companyNumber = CompanyKey.decode(companyKey);
+            DataMapHolder.initialise(latest.value().getContextId());
+            DataMapHolder.get()
+                    .topic(latest.topic())
+                    .partition(latest.partition())
+                    .offset(latest.offset())
+                    .companyNumber(companyNumber);
+            try {
+                client.postMetrics(companyNumber,
+                        latest.topic() + "-" + latest.partition() + "-" + latest.offset(),
+                        latest.value().getResourceUri());
+            } catch (RuntimeException ex) {
+                throw new BatchListenerFailedException(ex.getMessage(), ex, first);
+            }
+        }
+    }
+}
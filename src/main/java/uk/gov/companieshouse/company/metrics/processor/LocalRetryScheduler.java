@@ -0,0 +1,205 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.logging.LogContext;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+
+/**
+ * Retries failed recalculations in process before they are sent to the retry topic, saving a
+ * produce and a consume for each transient failure. A failed recalculation is held on a
+ * {@link RetryTimerWheel} for an exponential backoff with jitter and then started again, under
+ * the log context of the request it was made for. Only once the local attempts are used up is
+ * the returned future failed, so the listener falls back to the retry and error topics as
+ * before. Until then the future is incomplete, so the offset of the record is not committed,
+ * nor that of any later record on its partition. Non-retryable failures are never retried, and
+ * a retry the {@link RetryBudget} has no token for goes straight to the retry topics.
+ *
+ * <p>The backoff before the nth local retry is the initial delay doubled n - 1 times, up to the
+ * maximum delay, of which a random half is waited so retries from a burst of failures spread
+ * out. A failure that sets its own retry delay, such as a throttled response, is retried after
+ * that delay instead. Local retries are disabled by default.
+ */
+@Component
+public class LocalRetryScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
+
+    private static final String SCHEDULED_METRIC = "company.metrics.local.retry.scheduled";
+    private static final String RECOVERED_METRIC = "company.metrics.local.retry.recovered";
+    private static final String EXHAUSTED_METRIC = "company.metrics.local.retry.exhausted";
+    private static final String PENDING_METRIC = "company.metrics.local.retry.pending";
+    private static final String RETRY_MESSAGE = "Retrying recalculation locally in %d ms, "
+            + "attempt %d of %d";
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private final boolean enabled;
+    private final int attempts;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final RetryBudget retryBudget;
+    private final ExecutorService retryExecutor;
+    private final RetryTimerWheel wheel;
+    private final Counter scheduled;
+    private final Counter recovered;
+    private final Counter exhausted;
+
+    /**
+     * Constructs a LocalRetryScheduler.
+     */
+    public LocalRetryScheduler(
+            @Value("${company-metrics.consumer.local-retry.enable}") Boolean enabled,
+            @Value("${company-metrics.consumer.local-retry.attempts}") Integer attempts,
+            @Value("${company-metrics.consumer.local-retry.initial-delay}") Long initialDelay,
+            @Value("${company-metrics.consumer.local-retry.max-delay}") Long maxDelay,
+            @Value("${company-metrics.consumer.local-retry.tick}") Long tick,
+            RetryBudget retryBudget,
+            MeterRegistry meterRegistry) {
+        this.enabled = Boolean.TRUE.equals(enabled) && attempts > 0;
+        this.attempts = attempts;
+        this.initialDelay = Math.max(1L, initialDelay);
+        this.maxDelay = Math.max(this.initialDelay, maxDelay);
+        this.retryBudget = retryBudget;
+        if (this.enabled) {
+            this.retryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            this.wheel = new RetryTimerWheel(tick, TICKS_PER_WHEEL, retryExecutor);
+            meterRegistry.gauge(PENDING_METRIC, wheel, RetryTimerWheel::pending);
+        } else {
+            this.retryExecutor = null;
+            this.wheel = null;
+        }
+        this.scheduled = meterRegistry.counter(SCHEDULED_METRIC);
+        this.recovered = meterRegistry.counter(RECOVERED_METRIC);
+        this.exhausted = meterRegistry.counter(EXHAUSTED_METRIC);
+    }
+
+    /**
+     * Starts the recalculation, starting it again after a backoff each time it fails with a
+     * retryable failure until the local attempts are used up. When local retries are disabled
+     * the recalculation is only started.
+     *
+     * @param recalculation Starts the recalculation, returning a future for its completion.
+     * @return A future completed once an attempt has succeeded, or failed with the failure of
+     *         the last attempt.
+     */
+    public CompletableFuture<Void> retry(Supplier<CompletableFuture<Void>> recalculation) {
+        if (!enabled) {
+            return recalculation.get();
+        }
+        CompletableFuture<Void> first;
+        try {
+            first = recalculation.get();
+        } catch (NonRetryableErrorException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            first = CompletableFuture.failedFuture(ex);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        attempt(first, new Retry(recalculation, DataMapHolder.capture(), result));
+        return result;
+    }
+
+    /**
+     * Returns the backoff before the given local retry, with jitter.
+     */
+    long backoff(int retry) {
+        int doublings = Math.min(retry - 1, Long.numberOfLeadingZeros(initialDelay) - 2);
+        long delay = Math.min(initialDelay << doublings, maxDelay);
+        return delay - ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (wheel != null) {
+            // retries still waiting are failed, so their records go to the retry topic
+            wheel.stop().forEach(Runnable::run);
+            retryExecutor.shutdownNow();
+        }
+    }
+
+    private void attempt(CompletableFuture<Void> attempt, Retry retry) {
+        attempt.whenComplete((ignored, throwable) -> {
+            if (throwable == null) {
+                if (retry.retries > 0) {
+                    recovered.increment();
+                }
+                retry.result.complete(null);
+                return;
+            }
+            Throwable cause = throwable instanceof CompletionException
+                    && throwable.getCause() != null ? throwable.getCause() : throwable;
+            if (cause instanceof NonRetryableErrorException || retry.retries >= attempts
+                    || !retryBudget.tryRetry()) {
+                if (!(cause instanceof NonRetryableErrorException)) {
+                    exhausted.increment();
+                }
+                retry.result.completeExceptionally(cause);
+                return;
+            }
+            schedule(retry, cause);
+        });
+    }
+
+    private void schedule(Retry retry, Throwable cause) {
+        retry.retries++;
+        long delay = cause instanceof RetryableErrorException retryable
+                ? retryable.getRetryDelay().orElseGet(() -> backoff(retry.retries))
+                : backoff(retry.retries);
+        DataMapHolder.callWith(retry.context, () -> {
+            LOGGER.info(String.format(RETRY_MESSAGE, delay, retry.retries, attempts),
+                    DataMapHolder.getLogMap());
+            return null;
+        });
+        try {
+            wheel.schedule(() -> {
+                if (wheel.isStopped()) {
+                    retry.result.completeExceptionally(cause);
+                    return;
+                }
+                attempt(DataMapHolder.callWith(retry.context, () -> start(retry.recalculation)),
+                        retry);
+            }, delay);
+            scheduled.increment();
+        } catch (IllegalStateException ex) {
+            retry.result.completeExceptionally(cause);
+        }
+    }
+
+    private static CompletableFuture<Void> start(Supplier<CompletableFuture<Void>> recalculation) {
+        try {
+            return recalculation.get();
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private static final class Retry {
+
+        private final Supplier<CompletableFuture<Void>> recalculation;
+        private final LogContext context;
+        private final CompletableFuture<Void> result;
+        private int retries;
+
+        private Retry(Supplier<CompletableFuture<Void>> recalculation, LogContext context,
+                      CompletableFuture<Void> result) {
+            this.recalculation = recalculation;
+            this.context = context;
+            this.result = result;
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package uk.gov.companieshouse.company.metrics.processor;
 
-import uk.gov.companieshouse.company.metrics.type.ResourceChange;
+import java.util.concurrent.CompletableFuture;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.stream.ResourceChangedData;
 
 public interface MetricsRoutable {
 
-    void route(ResourceChange message, String deltaType, String updatedBy);
+    /**
+     * Routes the delta to the metrics client for its type.
+     *
+     * @param retry Whether the delta is being retried from a retry topic.
+     */
+    CompletableFuture<Void> route(ResourceChangedData data, DeltaType deltaType,
+                                  String updatedBy, boolean retry);
 }
@@ -1,31 +1,110 @@
 package uk.gov.companieshouse.company.metrics.processor;
 
+import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
 import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.logging.LogContext;
 import uk.gov.companieshouse.company.metrics.service.CompanyNumberExtractable;
+import uk.gov.companieshouse.company.metrics.service.CompanyNumberValidator;
+import uk.gov.companieshouse.company.metrics.service.MetricsApiBackoff;
+import uk.gov.companieshouse.company.metrics.service.MetricsClient;
 import uk.gov.companieshouse.company.metrics.service.MetricsClientFactory;
-import uk.gov.companieshouse.company.metrics.type.ResourceChange;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.company.metrics.type.EventType;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.stream.ResourceChangedData;
 
 @Component
 public class MetricsRouter implements MetricsRoutable {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
+
+    private static final String RETRY_BUDGET_EXHAUSTED =
+            "Retry budget exhausted, deferring retry to the next retry topic";
+
     private final CompanyNumberExtractable extractor;
+    private final CompanyNumberValidator validator;
     private final MetricsClientFactory factory;
+    private final RecalculationDebouncer debouncer;
+    private final LocalRetryScheduler localRetry;
+    private final RetryBudget retryBudget;
+    private final MetricsApiBackoff metricsApiBackoff;
 
-    public MetricsRouter(CompanyNumberExtractable extractor, MetricsClientFactory factory) {
+    /**
+     * Constructs a MetricsRouter.
+     */
+    public MetricsRouter(CompanyNumberExtractable extractor, CompanyNumberValidator validator,
+                         MetricsClientFactory factory, RecalculationDebouncer debouncer,
+                         LocalRetryScheduler localRetry, RetryBudget retryBudget,
+                         MetricsApiBackoff metricsApiBackoff) {
         this.extractor = extractor;
+        this.validator = validator;
         this.factory = factory;
+        this.debouncer = debouncer;
+        this.localRetry = localRetry;
+        this.retryBudget = retryBudget;
+        this.metricsApiBackoff = metricsApiBackoff;
     }
 
     @Override
-    public void route(ResourceChange message, String deltaType, String updatedBy) {
-        String eventType = message.getData().getEvent().getType();
-        String resourceUri = message.getData().getResourceUri();
-        String companyNumber = extractor.extractCompanyNumber(message.getData().getResourceUri());
+    public CompletableFuture<Void> route(ResourceChangedData data, DeltaType deltaType,
+                                         String updatedBy, boolean retry) {
+        EventType eventType = EventType.of(data.getEvent().getType());
+        String resourceUri = data.getResourceUri();
+        String companyNumber = validator.validate(
+                extractor.extractCompanyNumber(resourceUri));
 
         DataMapHolder.get().companyNumber(companyNumber);
 
-        factory.getMetricsClient(deltaType, eventType)
-                .postMetrics(companyNumber, updatedBy, resourceUri);
+        if (!retry) {
+            retryBudget.recordRequest();
+        } else if (!retryBudget.tryRetry()) {
+            LOGGER.info(RETRY_BUDGET_EXHAUSTED, DataMapHolder.getLogMap());
+            throw new RetryableErrorException(RETRY_BUDGET_EXHAUSTED);
+        }
+
+        MetricsClient client = factory.getMetricsClient(deltaType, eventType);
+        Optional<MetricsType> metricsType = client.getMetricsType();
+        Supplier<CompletableFuture<Void>> dispatch = () -> localRetry.retry(() ->
+                debouncer.submit(companyNumber, client, updatedBy, resourceUri));
+        // first attempts are deferred while the API is throttling or unreachable
+        long dispatchDelay = retry ? 0L
+                : metricsType.map(metricsApiBackoff::dispatchDelayNanos).orElse(0L);
+        return dispatchDelay > 0L ? defer(dispatch, dispatchDelay) : dispatch.get();
+    }
+
+    /**
+     * Dispatches the recalculation once the delay has passed, without blocking the listener
+     * thread, under the log context of the record it is for.
+     */
+    private static CompletableFuture<Void> defer(Supplier<CompletableFuture<Void>> dispatch,
+                                                 long delayNanos) {
+        LogContext context = DataMapHolder.capture();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            try {
+                DataMapHolder.callWith(context, dispatch).whenComplete((ignored, throwable) -> {
+                    if (throwable == null) {
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(throwable instanceof CompletionException
+                                && throwable.getCause() != null
+                                ? throwable.getCause() : throwable);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
     }
 }
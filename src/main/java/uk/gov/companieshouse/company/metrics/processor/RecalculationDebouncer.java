@@ -0,0 +1,239 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.logging.LogContext;
+import uk.gov.companieshouse.company.metrics.service.AsyncMetricsClient;
+import uk.gov.companieshouse.company.metrics.service.MergedMetricsClient;
+import uk.gov.companieshouse.company.metrics.service.MetricsApiBackoff;
+import uk.gov.companieshouse.company.metrics.service.MetricsClient;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+
+/**
+ * Coalesces recalculations for the same company number and metrics client. A pending
+ * recalculation is held until no further request for the company has arrived within the quiet
+ * window, or until the maximum delay since the first request has passed, and is then posted once
+ * on the trailing edge with the latest request's details. The returned future completes when the
+ * post covering the request completes, so the caller can defer committing its offset until then.
+ * A quiet window of zero disables debouncing and posts each request immediately. Posts are run
+ * by the {@link RecalculationExecutor}, and when asynchronous HTTP is enabled are sent by the
+ * non-blocking {@link AsyncMetricsClient}.
+ *
+ * <p>When merging is enabled requests for different types of metrics are coalesced per company
+ * number too, and a recalculation covering more than one type is posted as a single request with
+ * the flag for each type set. A successful post resets the {@link MetricsApiBackoff} of every
+ * type of metrics it covered.
+ */
+@Component
+public class RecalculationDebouncer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
+
+    private static final String SUBMITTED_METRIC = "company.metrics.debounce.submitted";
+    private static final String POSTED_METRIC = "company.metrics.debounce.posted";
+    private static final String MERGED_METRIC = "company.metrics.debounce.merged";
+    private static final String POST_SUMMARY =
+            "Posting recalculation coalesced from %d requests";
+
+    private final long quietWindowNanos;
+    private final long maxDelayNanos;
+    private final boolean mergeMetricsTypes;
+    private final boolean asyncHttp;
+    private final MergedMetricsClient mergedClient;
+    private final AsyncMetricsClient asyncClient;
+    private final MetricsApiBackoff metricsApiBackoff;
+    private final RecalculationExecutor executor;
+    private final ScheduledExecutorService scheduler;
+    private final Map<PendingKey, Pending> pending = new ConcurrentHashMap<>();
+    private final Counter submitted;
+    private final Counter posted;
+    private final Counter merged;
+
+    /**
+     * Constructs a RecalculationDebouncer.
+     */
+    public RecalculationDebouncer(
+            @Value("${company-metrics.consumer.debounce.quiet-window}") Long quietWindow,
+            @Value("${company-metrics.consumer.debounce.max-delay}") Long maxDelay,
+            @Value("${company-metrics.consumer.debounce.threads}") Integer threads,
+            @Value("${company-metrics.consumer.debounce.merge-delta-types}")
+                    Boolean mergeMetricsTypes,
+            @Value("${company-metrics.consumer.async-http.enable}") Boolean asyncHttp,
+            MergedMetricsClient mergedClient,
+            AsyncMetricsClient asyncClient,
+            MetricsApiBackoff metricsApiBackoff,
+            RecalculationExecutor executor,
+            MeterRegistry meterRegistry) {
+        this.quietWindowNanos = TimeUnit.MILLISECONDS.toNanos(quietWindow);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxDelay, quietWindow));
+        this.mergeMetricsTypes = mergeMetricsTypes;
+        this.asyncHttp = asyncHttp;
+        this.mergedClient = mergedClient;
+        this.asyncClient = asyncClient;
+        this.metricsApiBackoff = metricsApiBackoff;
+        this.executor = executor;
+        this.scheduler = quietWindow > 0 ? Executors.newScheduledThreadPool(threads) : null;
+        this.submitted = meterRegistry.counter(SUBMITTED_METRIC);
+        this.posted = meterRegistry.counter(POSTED_METRIC);
+        this.merged = meterRegistry.counter(MERGED_METRIC);
+    }
+
+    /**
+     * Submits a recalculation, coalescing it with any recalculation already pending for the same
+     * company number and metrics client, or for the same company number alone when merging.
+     *
+     * @param companyNumber The company number to recalculate metrics for.
+     * @param client        The metrics client to post the recalculation with.
+     * @param updatedBy     The topic, partition and offset of the request.
+     * @param resourceUri   The resource uri of the request.
+     * @return A future completed once a post covering this request has completed.
+     */
+    public CompletableFuture<Void> submit(String companyNumber, MetricsClient client,
+                                          String updatedBy, String resourceUri) {
+        submitted.increment();
+        if (scheduler == null) {
+            return executor.execute(companyNumber, () -> post(companyNumber, client,
+                    client.getMetricsType().map(EnumSet::of)
+                            .orElseGet(() -> EnumSet.noneOf(MetricsType.class)),
+                    updatedBy, resourceUri));
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        LogContext context = DataMapHolder.capture();
+        PendingKey key = new PendingKey(companyNumber,
+                mergeMetricsTypes && client.getMetricsType().isPresent() ? null : client);
+        pending.compute(key, (pendingKey, existing) -> {
+            Pending current = existing != null ? existing : new Pending(System.nanoTime());
+            current.cover(future, client, context, updatedBy, resourceUri);
+            current.reschedule(scheduler.schedule(() -> fire(pendingKey, current),
+                    current.delayNanos(quietWindowNanos, maxDelayNanos), TimeUnit.NANOSECONDS));
+            return current;
+        });
+        return future;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void fire(PendingKey key, Pending recalculation) {
+        // a trigger that started before it could be cancelled may find the recalculation
+        // already removed and posted by the trigger that replaced it
+        if (!pending.remove(key, recalculation)) {
+            return;
+        }
+        CompletableFuture<Void> posting = DataMapHolder.callWith(
+                recalculation.context.companyNumber(key.companyNumber()), () -> {
+                    try {
+                        return executor.execute(key.companyNumber(), () -> {
+                            LOGGER.debug(String.format(POST_SUMMARY,
+                                    recalculation.futures.size()), DataMapHolder.getLogMap());
+                            return post(key.companyNumber(), recalculation.client,
+                                    recalculation.metricsTypes, recalculation.updatedBy,
+                                    recalculation.resourceUri);
+                        });
+                    } catch (RuntimeException ex) {
+                        return CompletableFuture.failedFuture(ex);
+                    }
+                });
+        posting.whenComplete((ignored, ex) -> recalculation.futures.forEach(future -> {
+            if (ex == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(ex);
+            }
+        }));
+    }
+
+    private CompletableFuture<Void> post(String companyNumber, MetricsClient client,
+                                         Set<MetricsType> metricsTypes, String updatedBy,
+                                         String resourceUri) {
+        if (metricsTypes.size() > 1) {
+            merged.increment();
+        }
+        if (asyncHttp && !metricsTypes.isEmpty()) {
+            return asyncClient.postMetrics(companyNumber, updatedBy, metricsTypes)
+                    .thenRun(() -> succeeded(metricsTypes));
+        }
+        if (metricsTypes.size() > 1) {
+            mergedClient.postMetrics(companyNumber, updatedBy, metricsTypes);
+        } else {
+            client.postMetrics(companyNumber, updatedBy, resourceUri);
+        }
+        succeeded(metricsTypes);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void succeeded(Set<MetricsType> metricsTypes) {
+        posted.increment();
+        if (metricsApiBackoff.isEnabled()) {
+            metricsTypes.forEach(metricsApiBackoff::succeeded);
+        }
+    }
+
+    /**
+     * The client is null when requests for every type of metrics are merged for the company.
+     */
+    private record PendingKey(String companyNumber, MetricsClient client) {
+    }
+
+    private static final class Pending {
+
+        private final long firstRequestNanos;
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        private final Set<MetricsType> metricsTypes = EnumSet.noneOf(MetricsType.class);
+        private MetricsClient client;
+        private ScheduledFuture<?> trigger;
+        private LogContext context;
+        private String updatedBy;
+        private String resourceUri;
+
+        private Pending(long firstRequestNanos) {
+            this.firstRequestNanos = firstRequestNanos;
+        }
+
+        void cover(CompletableFuture<Void> future, MetricsClient client, LogContext context,
+                   String updatedBy, String resourceUri) {
+            this.futures.add(future);
+            this.client = client;
+            client.getMetricsType().ifPresent(metricsTypes::add);
+            this.context = context;
+            this.updatedBy = updatedBy;
+            this.resourceUri = resourceUri;
+        }
+
+        long delayNanos(long quietWindowNanos, long maxDelayNanos) {
+            long untilMaxDelay = firstRequestNanos + maxDelayNanos - System.nanoTime();
+            return Math.max(0L, Math.min(quietWindowNanos, untilMaxDelay));
+        }
+
+        void reschedule(ScheduledFuture<?> trigger) {
+            if (this.trigger != null) {
+                this.trigger.cancel(false);
+            }
+            this.trigger = trigger;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+
+/**
+ * Runs recalculations in parallel while keeping those for the same company number in the order
+ * they were submitted. Each recalculation is chained onto the last one submitted for its company,
+ * so recalculations for different companies, including those from the same partition, run
+ * concurrently. The number of recalculations in flight is bounded. Submitting never blocks the
+ * caller: once the bound is reached further recalculations wait in turn for capacity, and the
+ * listener containers that submit recalculations here are paused so no more records are polled
+ * until the waiting recalculations have all started. Those are the record listener containers
+ * for the main and retry topics of every delta type, as they share this executor and its bound;
+ * the batch and error topic containers are never paused. Zero threads disables parallel
+ * processing and runs each recalculation on the caller's thread.
+ *
+ * <p>In virtual thread mode each recalculation runs on its own virtual thread instead of a fixed
+ * pool, so blocking API calls park cheaply and concurrency is limited only by the in flight bound.
+ * Asynchronous HTTP recalculations are always chained, and without a pool are started on virtual
+ * threads, since starting one does not block.
+ */
+@Component
+public class RecalculationExecutor {
+
+    private static final String IN_FLIGHT_METRIC = "company.metrics.parallel.in.flight";
+    private static final String PAUSED_METRIC = "company.metrics.parallel.listeners.paused";
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight;
+    private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Set<MessageListenerContainer> listenerContainers =
+            ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+    private boolean listenersPaused;
+
+    /**
+     * Constructs a RecalculationExecutor.
+     */
+    public RecalculationExecutor(
+            @Value("${company-metrics.consumer.parallel.threads}") Integer threads,
+            @Value("${company-metrics.consumer.parallel.max-in-flight}") Integer maxInFlight,
+            @Value("${company-metrics.consumer.parallel.virtual-threads}") Boolean virtualThreads,
+            @Value("${company-metrics.consumer.async-http.enable}") Boolean asyncHttp,
+            MeterRegistry meterRegistry) {
+        if (threads > 0 && !Boolean.TRUE.equals(virtualThreads)) {
+            this.executor = Executors.newFixedThreadPool(threads);
+        } else if (Boolean.TRUE.equals(virtualThreads) || Boolean.TRUE.equals(asyncHttp)) {
+            this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            this.executor = null;
+        }
+        this.maxInFlight = maxInFlight;
+        this.inFlight = meterRegistry.gauge(IN_FLIGHT_METRIC, new AtomicInteger());
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Adds a listener container whose records are recalculated here, to be paused while
+     * recalculations wait for capacity.
+     */
+    public void addListenerContainer(MessageListenerContainer container) {
+        listenerContainers.add(container);
+    }
+
+    /**
+     * Starts the recalculation once every recalculation submitted earlier for the same company
+     * number has completed, whether or not they succeeded. When parallel processing is disabled
+     * the recalculation is started before this method returns and any failure to start it is
+     * thrown directly.
+     *
+     * @param companyNumber The company number the recalculation is for.
+     * @param recalculation Starts the recalculation, returning a future for its completion.
+     * @return A future completed once the recalculation has completed.
+     */
+    public CompletableFuture<Void> execute(String companyNumber,
+                                           Supplier<CompletableFuture<Void>> recalculation) {
+        if (executor == null) {
+            return recalculation.get();
+        }
+
+        CompletableFuture<Void> permit = acquire();
+        Supplier<CompletableFuture<Void>> task =
+                DataMapHolder.propagate(companyNumber, recalculation);
+        CompletableFuture<Void> next = tails.compute(companyNumber, (key, tail) ->
+                (tail == null ? permit
+                        : CompletableFuture.allOf(tail.exceptionally(ex -> null), permit))
+                        .thenComposeAsync(ignored -> task.get(), executor));
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        next.whenComplete((ignored, ex) -> {
+            tails.remove(companyNumber, next);
+            release();
+            if (ex == null) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(
+                        ex instanceof CompletionException && ex.getCause() != null
+                                ? ex.getCause() : ex);
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns a future completed once the recalculation may start, pausing the listener
+     * containers when it has to wait for capacity.
+     */
+    private CompletableFuture<Void> acquire() {
+        synchronized (waiting) {
+            if (inFlight.get() < maxInFlight) {
+                inFlight.incrementAndGet();
+                return GRANTED;
+            }
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiting.add(permit);
+            if (!listenersPaused) {
+                listenersPaused = true;
+                meterRegistry.counter(PAUSED_METRIC).increment();
+                listenerContainers.forEach(MessageListenerContainer::pause);
+            }
+            return permit;
+        }
+    }
+
+    /**
+     * Hands the capacity of a completed recalculation to the next one waiting, resuming the
+     * listener containers once none are left waiting.
+     */
+    private void release() {
+        CompletableFuture<Void> next;
+        synchronized (waiting) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight.decrementAndGet();
+            }
+            if (waiting.isEmpty() && listenersPaused) {
+                listenersPaused = false;
+                listenerContainers.forEach(MessageListenerContainer::resume);
+            }
+        }
+        if (next != null) {
+            next.complete(null);
+        }
+    }
+}
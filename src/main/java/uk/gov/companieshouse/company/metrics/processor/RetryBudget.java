@@ -0,0 +1,147 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits retries against company-metrics-api to a share of first attempts, so that when the API
+ * degrades retry traffic cannot multiply the load on it. One budget is shared by the clients of
+ * every delta type. Each first attempt earns a fraction of a token, set by the percentage, and
+ * each retry spends a whole token, with a minimum number of tokens each second so that retries
+ * are still allowed while traffic is light. Tokens are earned and spent in a sliding window made
+ * of one second buckets, and expire as their bucket leaves the window.
+ *
+ * <p>A retry refused by the budget is not attempted: a local retry goes straight to the retry
+ * topics, and a record from a retry topic moves on to the next, longer delayed, tier, or to the
+ * error topic once its attempts are used up. The retry budget is disabled by default.
+ */
+@Component
+public final class RetryBudget {
+
+    private static final String REQUESTS_METRIC = "company.metrics.retry.budget.requests";
+    private static final String RETRIES_METRIC = "company.metrics.retry.budget.retries";
+    private static final String REJECTED_METRIC = "company.metrics.retry.budget.rejected";
+    private static final String BALANCE_METRIC = "company.metrics.retry.budget.balance";
+    private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    private static final long NEVER = Long.MIN_VALUE / 2;
+
+    private final boolean enabled;
+    private final double tokensPerRequest;
+    private final long minRetriesPerBucket;
+    private final long[] bucketEpochs;
+    private final long[] requests;
+    private final long[] retries;
+    private final LongSupplier nanoTime;
+    private final Counter requested;
+    private final Counter retried;
+    private final Counter rejected;
+    private long requestsInWindow;
+    private long retriesInWindow;
+
+    /**
+     * Constructs a RetryBudget.
+     */
+    @Autowired
+    public RetryBudget(@Value("${company-metrics.consumer.retry-budget.enable}") Boolean enabled,
+                       @Value("${company-metrics.consumer.retry-budget.percent}") Integer percent,
+                       @Value("${company-metrics.consumer.retry-budget.min-retries-per-second}")
+                               Integer minRetriesPerSecond,
+                       @Value("${company-metrics.consumer.retry-budget.window}") Long window,
+                       MeterRegistry meterRegistry) {
+        this(enabled, percent, minRetriesPerSecond, window, meterRegistry, System::nanoTime);
+    }
+
+    RetryBudget(Boolean enabled, Integer percent, Integer minRetriesPerSecond, Long window,
+                MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.enabled = Boolean.TRUE.equals(enabled);
+        this.tokensPerRequest = percent / 100.0;
+        this.minRetriesPerBucket = minRetriesPerSecond;
+        int buckets = (int) Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(window));
+        this.bucketEpochs = new long[buckets];
+        Arrays.fill(bucketEpochs, NEVER);
+        this.requests = new long[buckets];
+        this.retries = new long[buckets];
+        this.nanoTime = nanoTime;
+        this.requested = meterRegistry.counter(REQUESTS_METRIC);
+        this.retried = meterRegistry.counter(RETRIES_METRIC);
+        this.rejected = meterRegistry.counter(REJECTED_METRIC);
+        meterRegistry.gauge(BALANCE_METRIC, this, RetryBudget::balance);
+    }
+
+    /**
+     * Records a first attempt, earning tokens for later retries.
+     */
+    public void recordRequest() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            requests[advance()]++;
+            requestsInWindow++;
+        }
+        requested.increment();
+    }
+
+    /**
+     * Spends a token on a retry, returning false without spending one when the budget has none
+     * left, in which case the retry should not be attempted.
+     */
+    public boolean tryRetry() {
+        if (!enabled) {
+            return true;
+        }
+        boolean allowed;
+        synchronized (this) {
+            int bucket = advance();
+            allowed = retriesInWindow + 1 <= allowance();
+            if (allowed) {
+                retries[bucket]++;
+                retriesInWindow++;
+            }
+        }
+        (allowed ? retried : rejected).increment();
+        return allowed;
+    }
+
+    /**
+     * Returns the number of tokens left to spend on retries in the current window.
+     */
+    synchronized double balance() {
+        if (!enabled) {
+            return 0.0;
+        }
+        advance();
+        return allowance() - retriesInWindow;
+    }
+
+    private double allowance() {
+        return minRetriesPerBucket * bucketEpochs.length + tokensPerRequest * requestsInWindow;
+    }
+
+    /**
+     * Returns the bucket for the current second, first emptying every bucket last used a whole
+     * window or more ago.
+     */
+    private int advance() {
+        long epoch = Math.floorDiv(nanoTime.getAsLong(), BUCKET_NANOS);
+        int bucket = (int) Math.floorMod(epoch, (long) bucketEpochs.length);
+        if (bucketEpochs[bucket] != epoch) {
+            for (int index = 0; index < bucketEpochs.length; index++) {
+                if (epoch - bucketEpochs[index] >= bucketEpochs.length) {
+                    requestsInWindow -= requests[index];
+                    retriesInWindow -= retries[index];
+                    requests[index] = 0L;
+                    retries[index] = 0L;
+                }
+            }
+            bucketEpochs[bucket] = epoch;
+        }
+        return bucket;
+    }
+}
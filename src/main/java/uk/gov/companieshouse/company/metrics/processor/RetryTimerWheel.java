@@ -0,0 +1,148 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel holding tasks until their delay has passed. Each bucket of the wheel
+ * covers one tick, and a task is placed in the bucket its deadline falls in, with the number of
+ * whole turns of the wheel still to pass before it is due. Scheduling a task only queues it, so
+ * it costs the same however many tasks are held, and a single worker thread moves queued tasks
+ * into their buckets and hands each due task to the executor as the wheel turns. Tasks are run
+ * up to a tick late, never early.
+ */
+class RetryTimerWheel {
+
+    private final long tickNanos;
+    private final List<List<Timeout>> buckets;
+    private final int mask;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Executor executor;
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean stopped;
+    private long tick;
+
+    /**
+     * Constructs a RetryTimerWheel and starts its worker thread.
+     *
+     * @param tickMillis The duration of one tick.
+     * @param ticksPerWheel The number of buckets, rounded up to a power of two.
+     * @param executor Runs the tasks that are due, so the wheel keeps turning while they run.
+     */
+    RetryTimerWheel(long tickMillis, int ticksPerWheel, Executor executor) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMillis));
+        int size = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+        this.buckets = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.worker = Thread.ofPlatform().name("local-retry-timer").daemon().unstarted(this::run);
+        worker.start();
+    }
+
+    /**
+     * Runs the task once the delay has passed.
+     */
+    void schedule(Runnable task, long delayMillis) {
+        if (stopped) {
+            throw new IllegalStateException("Retry timer wheel is stopped");
+        }
+        pending.incrementAndGet();
+        scheduled.add(new Timeout(task,
+                System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis)));
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run.
+     */
+    int pending() {
+        return pending.get();
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Stops the worker thread, returning the tasks that had not been run.
+     */
+    List<Runnable> stop() {
+        stopped = true;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) + 1000L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        List<Runnable> unprocessed = new ArrayList<>();
+        for (List<Timeout> bucket : buckets) {
+            bucket.forEach(timeout -> unprocessed.add(timeout.task));
+            bucket.clear();
+        }
+        for (Timeout timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+            unprocessed.add(timeout.task);
+        }
+        pending.addAndGet(-unprocessed.size());
+        return unprocessed;
+    }
+
+    private void run() {
+        while (!stopped) {
+            long deadline = (tick + 1) * tickNanos;
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+            transferScheduled();
+            expire(buckets.get((int) (tick & mask)), deadline);
+            tick++;
+        }
+    }
+
+    private void transferScheduled() {
+        for (Timeout timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+            long dueTick = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = Math.max(0L, (dueTick - tick) / buckets.size());
+            // a task already due goes in the current bucket rather than a full turn later
+            buckets.get((int) (Math.max(dueTick, tick) & mask)).add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket, long deadline) {
+        int kept = 0;
+        for (Timeout timeout : bucket) {
+            if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= deadline) {
+                pending.decrementAndGet();
+                executor.execute(timeout.task);
+            } else {
+                timeout.remainingRounds--;
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    private static final class Timeout {
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
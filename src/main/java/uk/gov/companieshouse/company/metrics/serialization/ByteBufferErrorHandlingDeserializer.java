@@ -0,0 +1,38 @@
+package uk.gov.companieshouse.company.metrics.serialization;
+
+import java.nio.ByteBuffer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+/**
+ * An ErrorHandlingDeserializer that hands record values to its delegate as the ByteBuffer the
+ * consumer read them into, instead of first copying each one into an array. A value the delegate
+ * fails to deserialize is copied and recorded in the deserializer exception header, as it is by
+ * ErrorHandlingDeserializer, so the failure is handled by the listener's error handler as before.
+ */
+public class ByteBufferErrorHandlingDeserializer<T> extends ErrorHandlingDeserializer<T> {
+
+    private final Deserializer<T> delegate;
+
+    public ByteBufferErrorHandlingDeserializer(Deserializer<T> delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null || isForKey()) {
+            return super.deserialize(topic, headers, data);
+        }
+        try {
+            headers.remove(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER);
+            return delegate.deserialize(topic, headers, data.duplicate());
+        } catch (Exception ex) {
+            SerializationUtils.deserializationException(headers, Utils.toArray(data), ex, false);
+            return null;
+        }
+    }
+}
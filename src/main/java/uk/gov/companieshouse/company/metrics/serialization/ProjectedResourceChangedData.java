@@ -0,0 +1,25 @@
+package uk.gov.companieshouse.company.metrics.serialization;
+
+import java.nio.ByteBuffer;
+import uk.gov.companieshouse.stream.EventRecord;
+
+/**
+ * A SourcedResourceChangedData holding only the resource uri, context id and event type used to
+ * route a recalculation. Every other field is null, which is why the record must be forwarded to
+ * the retry and error topics as its source bytes.
+ */
+public final class ProjectedResourceChangedData extends SourcedResourceChangedData {
+
+    /**
+     * Constructs a ProjectedResourceChangedData decoded from source.
+     */
+    public ProjectedResourceChangedData(ByteBuffer source, String resourceUri, String contextId,
+                                        String eventType) {
+        super(source);
+        EventRecord event = new EventRecord();
+        event.setType(eventType);
+        setResourceUri(resourceUri);
+        setContextId(contextId);
+        setEvent(event);
+    }
+}
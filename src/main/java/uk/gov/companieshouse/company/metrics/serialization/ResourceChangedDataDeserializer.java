@@ -2,11 +2,17 @@ package uk.gov.companieshouse.company.metrics.serialization;
 
 import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
@@ -19,16 +25,43 @@ public class ResourceChangedDataDeserializer implements Deserializer<ResourceCha
 
     private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
 
+    private static final ThreadLocal<Decoding> DECODING = ThreadLocal.withInitial(Decoding::new);
+
+    private final boolean retainSource;
+
+    public ResourceChangedDataDeserializer() {
+        this(false);
+    }
+
+    /**
+     * Constructs a ResourceChangedDataDeserializer. When retainSource is set, records are decoded
+     * as SourcedResourceChangedData, so they are forwarded to the retry and error topics as the
+     * bytes they were read from instead of being re-encoded.
+     */
+    @Autowired
+    public ResourceChangedDataDeserializer(
+            @Value("${company-metrics.consumer.passthrough.enable}") Boolean retainSource) {
+        this.retainSource = Boolean.TRUE.equals(retainSource);
+    }
+
     /**
      * deserialize.
      */
     @Override
     public ResourceChangedData deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data == null ? null : ByteBuffer.wrap(data));
+    }
+
+    /**
+     * deserialize directly from the buffer the consumer read the record into.
+     */
+    @Override
+    public ResourceChangedData deserialize(String topic, Headers headers, ByteBuffer data) {
         try {
-            Decoder decoder = DecoderFactory.get().binaryDecoder(data, null);
-            DatumReader<ResourceChangedData> reader =
-                    new ReflectDatumReader<>(ResourceChangedData.class);
-            return reader.read(null, decoder);
+            ByteBuffer source = data.hasArray() ? data.slice()
+                    : ByteBuffer.wrap(Utils.toArray(data));
+            return DECODING.get().read(source,
+                    retainSource ? new SourcedResourceChangedData(source) : null);
         } catch (Exception ex) {
             LOGGER.error("De-Serialization exception while converting to Avro schema object",
                     ex, DataMapHolder.getLogMap());
@@ -36,4 +69,24 @@ public class ResourceChangedDataDeserializer implements Deserializer<ResourceCha
         }
     }
 
+    /**
+     * Decoding state confined to one consumer thread. The generated reader resolves the schema
+     * once and the decoder is reconfigured for each record instead of allocated. The record
+     * itself is not reused, as it is handed on to the listener and may still be held by a batch,
+     * a pending recalculation or a retry after the next record is read. A record passed in is
+     * decoded into rather than a new one being created.
+     */
+    private static final class Decoding {
+
+        private final DatumReader<ResourceChangedData> reader =
+                new SpecificDatumReader<>(ResourceChangedData.class);
+        private BinaryDecoder decoder;
+
+        ResourceChangedData read(ByteBuffer source, ResourceChangedData record)
+                throws IOException {
+            decoder = DecoderFactory.get().binaryDecoder(source.array(),
+                    source.arrayOffset() + source.position(), source.remaining(), decoder);
+            return reader.read(record, decoder);
+        }
+    }
 }
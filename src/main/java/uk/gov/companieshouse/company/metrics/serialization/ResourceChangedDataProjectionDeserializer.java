@@ -0,0 +1,103 @@
+package uk.gov.companieshouse.company.metrics.serialization;
+
+import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+/**
+ * Decodes only the fields needed to route a recalculation. The record is read through a schema
+ * containing just the resource uri, context id and event type, so the remaining fields, including
+ * the data body, are skipped in the binary stream rather than materialised.
+ */
+@Component
+public class ResourceChangedDataProjectionDeserializer
+        implements Deserializer<ResourceChangedData> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
+
+    private static final String NAMESPACE = "uk.gov.companieshouse.stream";
+    private static final String RESOURCE_URI = "resource_uri";
+    private static final String CONTEXT_ID = "context_id";
+    private static final String EVENT = "event";
+    private static final String TYPE = "type";
+
+    private static final Schema PROJECTION = projection();
+
+    private static final ThreadLocal<Decoding> DECODING = ThreadLocal.withInitial(Decoding::new);
+
+    @Override
+    public ResourceChangedData deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data == null ? null : ByteBuffer.wrap(data));
+    }
+
+    /**
+     * deserialize directly from the buffer the consumer read the record into. The projected
+     * record keeps a view of that buffer as its source rather than a copy, which holds on to the
+     * fetched data until the record is no longer referenced.
+     */
+    @Override
+    public ResourceChangedData deserialize(String topic, Headers headers, ByteBuffer data) {
+        try {
+            ByteBuffer source = data.hasArray() ? data.slice()
+                    : ByteBuffer.wrap(Utils.toArray(data));
+            return DECODING.get().read(source);
+        } catch (Exception ex) {
+            LOGGER.error("De-Serialization exception while converting to Avro schema object",
+                    ex, DataMapHolder.getLogMap());
+            throw new NonRetryableErrorException(ex);
+        }
+    }
+
+    private static Schema projection() {
+        Schema string = Schema.create(Schema.Type.STRING);
+        GenericData.setStringType(string, GenericData.StringType.String);
+        Schema event = SchemaBuilder.record("EventRecord").namespace(NAMESPACE).fields()
+                .name(TYPE).type(string).noDefault()
+                .endRecord();
+        return SchemaBuilder.record("ResourceChangedData").namespace(NAMESPACE).fields()
+                .name(RESOURCE_URI).type(string).noDefault()
+                .name(CONTEXT_ID).type(string).noDefault()
+                .name(EVENT).type(event).noDefault()
+                .endRecord();
+    }
+
+    /**
+     * Decoding state confined to one consumer thread. The projected generic record is reused as
+     * its fields are copied out before the next record is read.
+     */
+    private static final class Decoding {
+
+        private final GenericDatumReader<GenericRecord> reader =
+                new GenericDatumReader<>(ResourceChangedData.getClassSchema(), PROJECTION);
+        private BinaryDecoder decoder;
+        private GenericRecord projected;
+
+        ResourceChangedData read(ByteBuffer source) throws IOException {
+            decoder = DecoderFactory.get().binaryDecoder(source.array(),
+                    source.arrayOffset() + source.position(), source.remaining(), decoder);
+            projected = reader.read(projected, decoder);
+            GenericRecord event = (GenericRecord) projected.get(EVENT);
+            return new ProjectedResourceChangedData(source,
+                    (String) projected.get(RESOURCE_URI),
+                    (String) projected.get(CONTEXT_ID),
+                    (String) event.get(TYPE));
+        }
+    }
+}
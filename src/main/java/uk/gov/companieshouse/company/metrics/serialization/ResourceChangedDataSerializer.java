@@ -2,7 +2,10 @@ package uk.gov.companieshouse.company.metrics.serialization;
 
 import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.specific.SpecificDatumWriter;
@@ -10,7 +13,6 @@ import org.apache.kafka.common.serialization.Serializer;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
-import uk.gov.companieshouse.kafka.serialization.AvroSerializer;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
 import uk.gov.companieshouse.stream.ResourceChangedData;
@@ -20,6 +22,8 @@ public class ResourceChangedDataSerializer implements Serializer<Object> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
 
+    private static final ThreadLocal<Encoding> ENCODING = ThreadLocal.withInitial(Encoding::new);
+
     @Override
     public byte[] serialize(String topic, Object payload) {
 
@@ -32,15 +36,12 @@ public class ResourceChangedDataSerializer implements Serializer<Object> {
                 return (byte[]) payload;
             }
 
-            if (payload instanceof ResourceChangedData) {
-                ResourceChangedData resourceChangedData = (ResourceChangedData) payload;
-                DatumWriter<ResourceChangedData> writer = new SpecificDatumWriter<>();
-                EncoderFactory encoderFactory = EncoderFactory.get();
-
-                AvroSerializer<ResourceChangedData> avroSerializer =
-                        new AvroSerializer<>(writer, encoderFactory);
+            if (payload instanceof SourcedResourceChangedData sourced) {
+                return sourced.getSource();
+            }
 
-                return avroSerializer.toBinary(resourceChangedData);
+            if (payload instanceof ResourceChangedData resourceChangedData) {
+                return ENCODING.get().write(resourceChangedData);
             }
 
             return payload.toString().getBytes(StandardCharsets.UTF_8);
@@ -51,4 +52,33 @@ public class ResourceChangedDataSerializer implements Serializer<Object> {
                     + "writing to byte array", ex);
         }
     }
+
+    /**
+     * Encoding state confined to one producing thread. The writer, encoder and output buffer are
+     * reused for each record, and only the encoded bytes are copied out. A buffer that has grown
+     * past the retained size for an unusually large record is replaced rather than kept.
+     */
+    private static final class Encoding {
+
+        private static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+        private final DatumWriter<ResourceChangedData> writer =
+                new SpecificDatumWriter<>(ResourceChangedData.getClassSchema());
+        private ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private BinaryEncoder encoder;
+
+        byte[] write(ResourceChangedData resourceChangedData) throws IOException {
+            // reconfiguring flushes anything a failed write left buffered, so reset afterwards
+            encoder = EncoderFactory.get().binaryEncoder(out, encoder);
+            out.reset();
+            writer.write(resourceChangedData, encoder);
+            encoder.flush();
+            byte[] bytes = out.toByteArray();
+            if (bytes.length > MAX_RETAINED_BYTES) {
+                out = new ByteArrayOutputStream();
+                encoder = null;
+            }
+            return bytes;
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package uk.gov.companieshouse.company.metrics.serialization;
+
+import java.nio.ByteBuffer;
+import org.apache.kafka.common.utils.Utils;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+/**
+ * A ResourceChangedData that keeps the bytes it was decoded from, so it is forwarded to the retry
+ * and error topics as those bytes rather than re-encoded. The source is a view of the buffer the
+ * consumer read the record into, which holds on to the fetched data until the record is no
+ * longer referenced.
+ */
+public class SourcedResourceChangedData extends ResourceChangedData {
+
+    private final ByteBuffer source;
+
+    public SourcedResourceChangedData(ByteBuffer source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns the bytes the record was decoded from, copying them only when the source is a view
+     * of a larger buffer.
+     */
+    public byte[] getSource() {
+        if (source.hasArray() && source.arrayOffset() == 0 && source.position() == 0
+                && source.remaining() == source.array().length) {
+            return source.array();
+        }
+        return Utils.toArray(source.duplicate());
+    }
+}
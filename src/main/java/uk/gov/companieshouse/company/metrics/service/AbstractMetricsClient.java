@@ -0,0 +1,67 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiRequestEncoder.recalculatePath;
+
+import java.util.Set;
+import uk.gov.companieshouse.api.InternalApiClient;
+import uk.gov.companieshouse.api.error.ApiErrorResponseException;
+import uk.gov.companieshouse.api.handler.exception.URIValidationException;
+import uk.gov.companieshouse.api.metrics.MetricsRecalculateApi;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiTransformer;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+
+/**
+ * Sends POST requests to the recalculation endpoint in company-metrics-api, shared by the
+ * clients for each type of metrics and the client for merged recalculations.
+ */
+abstract class AbstractMetricsClient {
+
+    private final InternalApiClientPool internalApiClientPool;
+    private final CompanyMetricsApiTransformer metricsApiTransformer;
+    private final ResponseHandler metricsApiResponseHandler;
+
+    AbstractMetricsClient(InternalApiClientPool internalApiClientPool,
+                          CompanyMetricsApiTransformer metricsApiTransformer,
+                          ResponseHandler metricsApiResponseHandler) {
+        this.internalApiClientPool = internalApiClientPool;
+        this.metricsApiTransformer = metricsApiTransformer;
+        this.metricsApiResponseHandler = metricsApiResponseHandler;
+    }
+
+    /**
+     * Sends a POST request to the metrics recalculate endpoint in the company metrics api with
+     * the flag set for each of the given metrics types, and handles any error responses.
+     *
+     * @param companyNumber The companyNumber of the POST request
+     * @param updatedBy     The topic, partition and offset of the latest delta covered
+     * @param deltaType     The delta type reported when handling an error response
+     * @param metricsTypes  The metrics to recalculate
+     */
+    void post(String companyNumber, String updatedBy, String deltaType,
+              Set<MetricsType> metricsTypes) {
+        InternalApiClient client = internalApiClientPool.borrow();
+        try {
+            client.getHttpClient().setRequestId(DataMapHolder.getRequestId());
+            MetricsRecalculateApi metricsRecalculateApi = metricsApiTransformer
+                    .transform(updatedBy,
+                            metricsTypes.contains(MetricsType.MORTGAGE),
+                            metricsTypes.contains(MetricsType.APPOINTMENTS),
+                            metricsTypes.contains(MetricsType.PSC),
+                            metricsTypes.contains(MetricsType.REGISTERS));
+            client.privateCompanyMetricsUpsertHandler()
+                    .postCompanyMetrics(
+                            recalculatePath(companyNumber),
+                            metricsRecalculateApi)
+                    .execute();
+        } catch (ApiErrorResponseException ex) {
+            metricsApiResponseHandler.handle(companyNumber, deltaType, ex);
+        } catch (IllegalArgumentException ex) {
+            metricsApiResponseHandler.handle(companyNumber, deltaType, ex);
+        } catch (URIValidationException ex) {
+            metricsApiResponseHandler.handle(companyNumber, deltaType, ex);
+        } finally {
+            internalApiClientPool.release(client);
+        }
+    }
+}
@@ -1,37 +1,26 @@
 package uk.gov.companieshouse.company.metrics.service;
 
-import java.util.function.Supplier;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
 import org.springframework.stereotype.Component;
-import uk.gov.companieshouse.api.InternalApiClient;
-import uk.gov.companieshouse.api.error.ApiErrorResponseException;
-import uk.gov.companieshouse.api.handler.exception.URIValidationException;
-import uk.gov.companieshouse.api.metrics.MetricsRecalculateApi;
-import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
 import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiTransformer;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
 
 @Component("appointmentsClient")
-public class AppointmentsClient implements MetricsClient {
+public class AppointmentsClient extends AbstractMetricsClient implements MetricsClient {
 
     private static final String APPOINTMENTS_DELTA_TYPE = "appointments";
-    private static final boolean IS_MORTGAGE = false;
-    private static final boolean IS_APPOINTMENT = true;
-    private static final boolean IS_PSC = false;
-    private static final boolean IS_REGISTERS = false;
-
-    private final Supplier<InternalApiClient> internalApiClientFactory;
-    private final CompanyMetricsApiTransformer metricsApiTransformer;
-    private final ResponseHandler metricsApiResponseHandler;
+    private static final Set<MetricsType> METRICS_TYPES = EnumSet.of(MetricsType.APPOINTMENTS);
 
     /**
      * Constructs AppointmentsClient object. This object is used to send a POST request to the
      * recalculation endpoint in company-metrics-api.
      */
-    public AppointmentsClient(Supplier<InternalApiClient> internalApiClientFactory,
+    public AppointmentsClient(InternalApiClientPool internalApiClientPool,
                               CompanyMetricsApiTransformer metricsApiTransformer,
                               ResponseHandler metricsApiResponseHandler) {
-        this.internalApiClientFactory = internalApiClientFactory;
-        this.metricsApiTransformer = metricsApiTransformer;
-        this.metricsApiResponseHandler = metricsApiResponseHandler;
+        super(internalApiClientPool, metricsApiTransformer, metricsApiResponseHandler);
     }
 
     /**
@@ -43,26 +32,11 @@ public class AppointmentsClient implements MetricsClient {
     @Override
     public void postMetrics(String companyNumber, String updatedBy,
                             String resourceUri) {
-        InternalApiClient client = internalApiClientFactory.get();
-        client.getHttpClient().setRequestId(DataMapHolder.getRequestId());
+        post(companyNumber, updatedBy, APPOINTMENTS_DELTA_TYPE, METRICS_TYPES);
+    }
 
-        try {
-            MetricsRecalculateApi metricsRecalculateApi = metricsApiTransformer
-                    .transform(updatedBy, IS_MORTGAGE, IS_APPOINTMENT, IS_PSC, IS_REGISTERS);
-            client.privateCompanyMetricsUpsertHandler()
-                    .postCompanyMetrics(
-                            String.format("/company/%s/metrics/recalculate", companyNumber),
-                            metricsRecalculateApi)
-                    .execute();
-        } catch (ApiErrorResponseException ex) {
-            metricsApiResponseHandler
-                    .handle(companyNumber, APPOINTMENTS_DELTA_TYPE, ex);
-        } catch (IllegalArgumentException ex) {
-            metricsApiResponseHandler
-                    .handle(companyNumber, APPOINTMENTS_DELTA_TYPE, ex);
-        } catch (URIValidationException ex) {
-            metricsApiResponseHandler
-                    .handle(companyNumber, APPOINTMENTS_DELTA_TYPE, ex);
-        }
+    @Override
+    public Optional<MetricsType> getMetricsType() {
+        return Optional.of(MetricsType.APPOINTMENTS);
     }
 }
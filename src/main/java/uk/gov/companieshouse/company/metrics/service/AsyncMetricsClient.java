@@ -0,0 +1,139 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiRequestEncoder.recalculatePath;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.api.error.ApiErrorResponseException;
+import uk.gov.companieshouse.api.handler.exception.URIValidationException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.logging.LogContext;
+import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiRequestEncoder;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+
+@Component
+public class AsyncMetricsClient {
+
+    private static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    private final HttpClient httpClient;
+    private final CompanyMetricsApiRequestEncoder metricsApiRequestEncoder;
+    private final ResponseHandler metricsApiResponseHandler;
+    private final String apiUrl;
+    private final String authorisation;
+    private final Duration timeout;
+
+    /**
+     * Constructs AsyncMetricsClient object. This object is used to send a POST request to the
+     * recalculation endpoint in company-metrics-api without blocking the calling thread.
+     */
+    public AsyncMetricsClient(HttpClient metricsApiHttpClient,
+                              CompanyMetricsApiRequestEncoder metricsApiRequestEncoder,
+                              ResponseHandler metricsApiResponseHandler,
+                              @Value("${api.api-url}") String apiUrl,
+                              @Value("${api.company-metrics-api-key}") String apiKey,
+                              @Value("${company-metrics.consumer.async-http.timeout}")
+                                      Long timeout) {
+        this.httpClient = metricsApiHttpClient;
+        this.metricsApiRequestEncoder = metricsApiRequestEncoder;
+        this.metricsApiResponseHandler = metricsApiResponseHandler;
+        this.apiUrl = apiUrl;
+        this.authorisation = "Basic " + Base64.getEncoder()
+                .encodeToString((apiKey + ":").getBytes(StandardCharsets.UTF_8));
+        this.timeout = Duration.ofMillis(timeout);
+    }
+
+    /**
+     * Sends a POST request to the metrics recalculate endpoint in the company metrics api with
+     * the flag set for each of the given metrics types. The returned future completes when the
+     * response is received, or fails with the exception thrown by the response handler for an
+     * error response, so retryable and non-retryable failures are classified as for the
+     * blocking clients.
+     *
+     * @param companyNumber The companyNumber of the POST request
+     * @param updatedBy     The topic, partition and offset of the latest delta covered
+     * @param metricsTypes  The metrics to recalculate
+     * @return A future completed once the recalculation has been accepted
+     */
+    public CompletableFuture<Void> postMetrics(String companyNumber, String updatedBy,
+                                               Set<MetricsType> metricsTypes) {
+        LogContext context = DataMapHolder.capture().companyNumber(companyNumber);
+        String deltaType = metricsTypes.stream()
+                .map(MetricsType::getDeltaType)
+                .collect(Collectors.joining(","));
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(apiUrl + recalculatePath(companyNumber)))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", authorisation)
+                    .header(REQUEST_ID_HEADER, context.getRequestId())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(metricsApiRequestEncoder
+                            .encode(updatedBy,
+                                    metricsTypes.contains(MetricsType.MORTGAGE),
+                                    metricsTypes.contains(MetricsType.APPOINTMENTS),
+                                    metricsTypes.contains(MetricsType.PSC),
+                                    metricsTypes.contains(MetricsType.REGISTERS))))
+                    .build();
+        } catch (IllegalArgumentException ex) {
+            metricsApiResponseHandler.handle(companyNumber, deltaType,
+                    new URIValidationException(ex.getMessage()));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, throwable) -> DataMapHolder.callWith(context, () -> {
+                    handleResponse(companyNumber, deltaType, response, throwable);
+                    return null;
+                }));
+    }
+
+    private void handleResponse(String companyNumber, String deltaType,
+                                HttpResponse<String> response, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        if (cause instanceof IOException ex) {
+            metricsApiResponseHandler.handle(companyNumber, deltaType, ex);
+        } else if (cause != null) {
+            metricsApiResponseHandler.handle(companyNumber, deltaType,
+                    new IllegalArgumentException(cause.getMessage(), cause));
+        } else if (response.statusCode() < 200 || response.statusCode() > 299) {
+            metricsApiResponseHandler.handle(companyNumber, deltaType,
+                    new ApiErrorResponseException(errorResponse(response)));
+        }
+    }
+
+    /**
+     * Builds the error response as the SDK does, with the reason phrase as the status message
+     * and the body kept apart as the content, so it does not end up in the message.
+     */
+    private static HttpResponseException.Builder errorResponse(HttpResponse<String> response) {
+        HttpStatus status = HttpStatus.resolve(response.statusCode());
+        String statusMessage = status != null ? status.getReasonPhrase() : null;
+        String body = response.body();
+        return new HttpResponseException.Builder(response.statusCode(), statusMessage,
+                new HttpHeaders().setRetryAfter(response.headers()
+                        .firstValue(RETRY_AFTER_HEADER).orElse(null)))
+                .setMessage(statusMessage != null
+                        ? response.statusCode() + " " + statusMessage
+                        : String.valueOf(response.statusCode()))
+                .setContent(body == null || body.isEmpty() ? null : body);
+    }
+}
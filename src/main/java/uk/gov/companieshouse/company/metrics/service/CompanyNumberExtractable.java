@@ -1,5 +1,14 @@
 package uk.gov.companieshouse.company.metrics.service;
 
+import uk.gov.companieshouse.company.metrics.type.CompanyKey;
+
 public interface CompanyNumberExtractable {
     String extractCompanyNumber(String uri);
+
+    /**
+     * Extracts the company number from the uri packed into a {@link CompanyKey}.
+     */
+    default long extractCompanyKey(String uri) {
+        return CompanyKey.encode(extractCompanyNumber(uri));
+    }
 }
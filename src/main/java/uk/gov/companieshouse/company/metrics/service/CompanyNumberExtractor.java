@@ -2,12 +2,11 @@ package uk.gov.companieshouse.company.metrics.service;
 
 import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.type.CompanyKey;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
 
@@ -16,8 +15,8 @@ public class CompanyNumberExtractor implements CompanyNumberExtractable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
 
-    private static final Pattern EXTRACT_COMPANY_NUMBER_PATTERN =
-            Pattern.compile("(?<=company/)([a-zA-Z0-9]{6,10})(?=/.*)");
+    private static final String COMPANY_SEGMENT = "company/";
+    private static final long NO_COMPANY_KEY = 0L;
     private static final String NULL_EMPTY_URI =
             "Could not extract company number from empty or null resource uri";
     private static final String EXTRACTION_ERROR =
@@ -25,17 +24,51 @@ public class CompanyNumberExtractor implements CompanyNumberExtractable {
 
     @Override
     public String extractCompanyNumber(String uri) {
+        return CompanyKey.decode(extractCompanyKey(uri));
+    }
+
+    @Override
+    public long extractCompanyKey(String uri) {
         if (StringUtils.isBlank(uri)) {
             LOGGER.error(NULL_EMPTY_URI, DataMapHolder.getLogMap());
             throw new NonRetryableErrorException(NULL_EMPTY_URI);
         }
-        // matches up to 10 digits between company/ and /
-        Matcher matcher = EXTRACT_COMPANY_NUMBER_PATTERN.matcher(uri);
-        if (matcher.find()) {
-            return matcher.group();
+        long companyKey = scan(uri);
+        if (companyKey != NO_COMPANY_KEY) {
+            return companyKey;
         } else {
             LOGGER.error(String.format(EXTRACTION_ERROR, uri), DataMapHolder.getLogMap());
             throw new NonRetryableErrorException(String.format(EXTRACTION_ERROR, uri));
         }
     }
+
+    /**
+     * Finds the first run of 6 to 10 ASCII letters and digits that directly follows company/ and
+     * is directly followed by /, matching the same company number as the pattern
+     * (?<=company/)([a-zA-Z0-9]{6,10})(?=/.*) without allocating, and packs it into a key.
+     */
+    private static long scan(String uri) {
+        int segment = uri.indexOf(COMPANY_SEGMENT);
+        while (segment >= 0) {
+            int start = segment + COMPANY_SEGMENT.length();
+            int end = start;
+            while (end < uri.length() && end - start <= CompanyKey.MAX_LENGTH
+                    && isAlphanumeric(uri.charAt(end))) {
+                end++;
+            }
+            int length = end - start;
+            if (length >= CompanyKey.MIN_LENGTH && length <= CompanyKey.MAX_LENGTH
+                    && end < uri.length() && uri.charAt(end) == '/') {
+                return CompanyKey.encode(uri, start, end);
+            }
+            segment = uri.indexOf(COMPANY_SEGMENT, segment + 1);
+        }
+        return NO_COMPANY_KEY;
+    }
+
+    private static boolean isAlphanumeric(char character) {
+        return (character >= 'a' && character <= 'z')
+                || (character >= 'A' && character <= 'Z')
+                || (character >= '0' && character <= '9');
+    }
 }
@@ -0,0 +1,220 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.type.CompanyKey;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+
+/**
+ * Checks an extracted company number is one Companies House could have issued before a
+ * recalculation is requested for it, so a malformed number is sent to the invalid topic rather
+ * than failing only after a round trip to company-metrics-api. A company number is 8 characters,
+ * either all digits or a known jurisdiction prefix followed by 6 digits. The serial of a
+ * society registered under the Industrial and Provident Societies Acts may also hold letters,
+ * as in IP12345R. Letters are matched regardless of case and the company number is returned in
+ * upper case.
+ *
+ * <p>Prefixes are looked up in a table built once with a perfect hash, so checking a number is
+ * a multiply, a shift and a single comparison. Accepted and rejected numbers are counted per
+ * prefix, with every unknown prefix counted together. Validation is disabled by default.
+ */
+@Component
+public class CompanyNumberValidator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
+
+    private static final String VALID_METRIC = "company.metrics.company.number.valid";
+    private static final String INVALID_METRIC = "company.metrics.company.number.invalid";
+    private static final String PREFIX_TAG = "prefix";
+    private static final String NO_PREFIX = "none";
+    private static final String UNKNOWN_PREFIX = "unknown";
+    private static final String INVALID_COMPANY_NUMBER = "Invalid company number: %s";
+
+    private static final String[] PREFIXES = {
+        "AC", "AE", "AL", "BR", "CE", "CS", "ES", "FC", "FE", "GE", "GN", "GS", "IC", "IP",
+        "LP", "NA", "NC", "NE", "NF", "NI", "NL", "NO", "NP", "NR", "NV", "NZ", "OC", "OE",
+        "PC", "R0", "RC", "RS", "SA", "SC", "SE", "SF", "SG", "SI", "SL", "SO", "SP", "SR",
+        "SZ", "ZC"};
+
+    /**
+     * The prefixes whose serials may hold letters as well as digits.
+     */
+    private static final String[] ALPHANUMERIC_SERIAL_PREFIXES = {"IP", "NP", "SP"};
+
+    private static final int LENGTH = 8;
+    private static final int SERIAL_LENGTH = 6;
+    private static final int BITS_PER_CHARACTER = 6;
+    private static final int SERIAL_BITS = SERIAL_LENGTH * BITS_PER_CHARACTER;
+    private static final int CHARACTER_MASK = (1 << BITS_PER_CHARACTER) - 1;
+    private static final int DIGIT_CODES = 10;
+    private static final int LETTER_CODES = 26;
+    private static final int UPPER_CASE_CODES = DIGIT_CODES + LETTER_CODES;
+
+    private static final int TABLE_BITS = 8;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int NONE_SLOT = TABLE_SIZE;
+    private static final int UNKNOWN_SLOT = TABLE_SIZE + 1;
+
+    private static final int MULTIPLIER = findMultiplier();
+    private static final int[] TABLE = table();
+    private static final boolean[] ALPHANUMERIC_SERIAL = alphanumericSerial();
+
+    private final boolean enabled;
+    private final Counter[] valid = new Counter[TABLE_SIZE + 2];
+    private final Counter[] invalid = new Counter[TABLE_SIZE + 2];
+
+    /**
+     * Constructs a CompanyNumberValidator.
+     */
+    public CompanyNumberValidator(MeterRegistry meterRegistry,
+                                  @Value("${company-metrics.consumer.validation.enable}")
+                                  Boolean enabled) {
+        this.enabled = enabled;
+        for (String prefix : PREFIXES) {
+            register(meterRegistry, slot(prefixCode(prefix)), prefix);
+        }
+        register(meterRegistry, NONE_SLOT, NO_PREFIX);
+        register(meterRegistry, UNKNOWN_SLOT, UNKNOWN_PREFIX);
+    }
+
+    /**
+     * Returns the company number in upper case when it is valid.
+     *
+     * @throws NonRetryableErrorException if the company number could not have been issued.
+     */
+    public String validate(String companyNumber) {
+        if (!enabled) {
+            return companyNumber;
+        }
+        if (!CompanyKey.isValid(companyNumber)) {
+            reject(UNKNOWN_SLOT, companyNumber);
+        }
+        long companyKey = CompanyKey.encode(companyNumber);
+        long validated = validate(companyKey);
+        return validated == companyKey ? companyNumber : CompanyKey.decode(validated);
+    }
+
+    /**
+     * Returns the {@link CompanyKey} of the company number in upper case when it is valid.
+     *
+     * @throws NonRetryableErrorException if the company number could not have been issued.
+     */
+    public long validate(long companyKey) {
+        if (!enabled) {
+            return companyKey;
+        }
+        if (CompanyKey.length(companyKey) != LENGTH) {
+            reject(UNKNOWN_SLOT, CompanyKey.decode(companyKey));
+        }
+        long upperCaseKey = upperCase(companyKey);
+        int slot = lookup((int) (upperCaseKey >>> SERIAL_BITS));
+        if (slot == UNKNOWN_SLOT || !isSerial(upperCaseKey, slot)) {
+            reject(slot, CompanyKey.decode(companyKey));
+        }
+        valid[slot].increment();
+        return upperCaseKey;
+    }
+
+    private void reject(int slot, String companyNumber) {
+        invalid[slot].increment();
+        String message = String.format(INVALID_COMPANY_NUMBER, companyNumber);
+        LOGGER.error(message, DataMapHolder.getLogMap());
+        throw new NonRetryableErrorException(message);
+    }
+
+    private void register(MeterRegistry meterRegistry, int slot, String prefix) {
+        valid[slot] = meterRegistry.counter(VALID_METRIC, PREFIX_TAG, prefix);
+        invalid[slot] = meterRegistry.counter(INVALID_METRIC, PREFIX_TAG, prefix);
+    }
+
+    private static int lookup(int prefix) {
+        if (isDigit(prefix >>> BITS_PER_CHARACTER) && isDigit(prefix & CHARACTER_MASK)) {
+            return NONE_SLOT;
+        }
+        int slot = slot(prefix);
+        return TABLE[slot] == prefix ? slot : UNKNOWN_SLOT;
+    }
+
+    private static long upperCase(long companyKey) {
+        long upperCaseKey = 0L;
+        for (int index = LENGTH - 1; index >= 0; index--) {
+            int code = (int) (companyKey >>> (index * BITS_PER_CHARACTER)) & CHARACTER_MASK;
+            upperCaseKey = (upperCaseKey << BITS_PER_CHARACTER)
+                    | (code > UPPER_CASE_CODES ? code - LETTER_CODES : code);
+        }
+        return upperCaseKey;
+    }
+
+    /**
+     * Returns whether the serial is all digits, or when its prefix allows is letters and
+     * digits, which every character of a company key already is.
+     */
+    private static boolean isSerial(long companyKey, int slot) {
+        if (slot != NONE_SLOT && ALPHANUMERIC_SERIAL[slot]) {
+            return true;
+        }
+        for (int index = 0; index < SERIAL_LENGTH; index++) {
+            if (!isDigit((int) (companyKey >>> (index * BITS_PER_CHARACTER)) & CHARACTER_MASK)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(int code) {
+        return code >= 1 && code <= DIGIT_CODES;
+    }
+
+    private static int slot(int prefix) {
+        return (prefix * MULTIPLIER) >>> (Integer.SIZE - TABLE_BITS);
+    }
+
+    private static int prefixCode(String prefix) {
+        return (int) (CompanyKey.encode(prefix + "0".repeat(SERIAL_LENGTH)) >>> SERIAL_BITS);
+    }
+
+    /**
+     * Searches odd multipliers, starting from the golden ratio, for the first that sends every
+     * prefix to its own slot.
+     */
+    private static int findMultiplier() {
+        for (int multiplier = 0x9E3779B9; ; multiplier += 2) {
+            boolean[] used = new boolean[TABLE_SIZE];
+            boolean perfect = true;
+            for (String prefix : PREFIXES) {
+                int slot = (prefixCode(prefix) * multiplier) >>> (Integer.SIZE - TABLE_BITS);
+                if (used[slot]) {
+                    perfect = false;
+                    break;
+                }
+                used[slot] = true;
+            }
+            if (perfect) {
+                return multiplier;
+            }
+        }
+    }
+
+    private static int[] table() {
+        int[] table = new int[TABLE_SIZE];
+        for (String prefix : PREFIXES) {
+            table[slot(prefixCode(prefix))] = prefixCode(prefix);
+        }
+        return table;
+    }
+
+    private static boolean[] alphanumericSerial() {
+        boolean[] alphanumeric = new boolean[TABLE_SIZE];
+        for (String prefix : ALPHANUMERIC_SERIAL_PREFIXES) {
+            alphanumeric[slot(prefixCode(prefix))] = true;
+        }
+        return alphanumeric;
+    }
+}
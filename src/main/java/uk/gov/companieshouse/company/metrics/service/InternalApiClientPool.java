@@ -0,0 +1,76 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.api.InternalApiClient;
+
+/**
+ * Keeps idle InternalApiClients for reuse, so their HTTP transport and kept alive connections
+ * outlive a single message. A client is only ever leased to one caller at a time, so the request
+ * id set on its HTTP client cannot race with another thread. Clients are reused most recently
+ * released first to favour warm connections, and a client released when the pool already holds
+ * its maximum number of idle clients is discarded.
+ *
+ * <p>The SDK's transport keeps connections alive in the JVM wide HttpURLConnection cache, which
+ * holds five per host unless the {@code http.maxConnections} system property is set. The start
+ * script sizes it to the maximum number of recalculations in flight.
+ */
+@Component
+public class InternalApiClientPool {
+
+    private static final String HITS_METRIC = "company.metrics.api.client.pool.hits";
+    private static final String MISSES_METRIC = "company.metrics.api.client.pool.misses";
+    private static final String DISCARDED_METRIC = "company.metrics.api.client.pool.discarded";
+    private static final String IDLE_METRIC = "company.metrics.api.client.pool.idle";
+
+    private final Supplier<InternalApiClient> internalApiClientFactory;
+    private final BlockingDeque<InternalApiClient> idle;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter discarded;
+
+    /**
+     * Constructs an InternalApiClientPool holding up to maxIdle idle clients.
+     */
+    public InternalApiClientPool(Supplier<InternalApiClient> internalApiClientFactory,
+                                 @Value("${api.client-pool.max-idle}") Integer maxIdle,
+                                 MeterRegistry meterRegistry) {
+        this.internalApiClientFactory = internalApiClientFactory;
+        this.idle = new LinkedBlockingDeque<>(maxIdle);
+        this.hits = meterRegistry.counter(HITS_METRIC);
+        this.misses = meterRegistry.counter(MISSES_METRIC);
+        this.discarded = meterRegistry.counter(DISCARDED_METRIC);
+        meterRegistry.gauge(IDLE_METRIC, idle, BlockingDeque::size);
+    }
+
+    /**
+     * Leases a client, reusing an idle one when available.
+     *
+     * @return A client that must be returned with {@link #release(InternalApiClient)}.
+     */
+    public InternalApiClient borrow() {
+        InternalApiClient client = idle.pollFirst();
+        if (client != null) {
+            hits.increment();
+            return client;
+        }
+        misses.increment();
+        return internalApiClientFactory.get();
+    }
+
+    /**
+     * Returns a leased client to the pool.
+     *
+     * @param client The client leased from {@link #borrow()}.
+     */
+    public void release(InternalApiClient client) {
+        if (!idle.offerFirst(client)) {
+            discarded.increment();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiTransformer;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+
+@Component
+public class MergedMetricsClient extends AbstractMetricsClient {
+
+    /**
+     * Constructs MergedMetricsClient object. This object is used to send a single POST request
+     * to the recalculation endpoint in company-metrics-api covering several types of metrics.
+     */
+    public MergedMetricsClient(InternalApiClientPool internalApiClientPool,
+                               CompanyMetricsApiTransformer metricsApiTransformer,
+                               ResponseHandler metricsApiResponseHandler) {
+        super(internalApiClientPool, metricsApiTransformer, metricsApiResponseHandler);
+    }
+
+    /**
+     * Sends a POST request to the metrics recalculate endpoint in the company metrics api with
+     * the flag set for each of the given metrics types, and handles any error responses.
+     *
+     * @param companyNumber The companyNumber of the POST request
+     * @param updatedBy     The topic, partition and offset of the latest delta covered
+     * @param metricsTypes  The metrics to recalculate
+     */
+    public void postMetrics(String companyNumber, String updatedBy,
+                            Set<MetricsType> metricsTypes) {
+        String deltaType = metricsTypes.stream()
+                .map(MetricsType::getDeltaType)
+                .collect(Collectors.joining(","));
+        post(companyNumber, updatedBy, deltaType, metricsTypes);
+    }
+}
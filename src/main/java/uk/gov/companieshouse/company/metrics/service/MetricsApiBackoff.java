@@ -0,0 +1,266 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+
+/**
+ * Works out how long to wait before retrying a recalculation that company-metrics-api turned
+ * away or could not be reached for, keeping a separate backoff for each type of metrics. A 429
+ * or 503 response moves the type along the throttled curve, and a timeout or connection error
+ * along the connection curve. The delay on either curve is its initial delay doubled for each
+ * consecutive failure up to its maximum, of which a random half is waited. A Retry-After header
+ * on the response is a floor under the delay, which is then no shorter than it asks for even
+ * beyond the maximum delay of the curve, up to the maximum Retry-After honoured. A successful
+ * recalculation resets both curves for its type.
+ *
+ * <p>Besides setting the delay before the failed recalculation is retried, a failure defers
+ * the dispatch of first attempts for its type until the delay has passed, for no longer than
+ * the maximum dispatch pause at a time, so new records do not keep the API busy while it
+ * recovers. Adaptive backoff is disabled by default.
+ */
+@Component
+public final class MetricsApiBackoff {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
+
+    private static final String THROTTLED_METRIC = "company.metrics.api.backoff.throttled";
+    private static final String CONNECTION_METRIC = "company.metrics.api.backoff.connection";
+    private static final String PAUSED_METRIC = "company.metrics.api.backoff.dispatch.paused";
+    private static final String DELTA_TYPE_TAG = "delta_type";
+    private static final int MAX_FAILURES = 64;
+    private static final String PAUSE_MESSAGE = "Deferring dispatch of %s recalculations for %d ms";
+
+    private final boolean enabled;
+    private final Curve throttledCurve;
+    private final Curve connectionCurve;
+    private final long maxRetryAfter;
+    private final long maxDispatchPauseNanos;
+    private final Map<MetricsType, Backoff> backoffs = new EnumMap<>(MetricsType.class);
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoTime;
+
+    /**
+     * Constructs a MetricsApiBackoff.
+     */
+    @Autowired
+    public MetricsApiBackoff(
+            @Value("${company-metrics.consumer.adaptive-backoff.enable}") Boolean enabled,
+            @Value("${company-metrics.consumer.adaptive-backoff.throttled.initial-delay}")
+                    Long throttledInitialDelay,
+            @Value("${company-metrics.consumer.adaptive-backoff.throttled.max-delay}")
+                    Long throttledMaxDelay,
+            @Value("${company-metrics.consumer.adaptive-backoff.throttled.max-retry-after}")
+                    Long throttledMaxRetryAfter,
+            @Value("${company-metrics.consumer.adaptive-backoff.connection.initial-delay}")
+                    Long connectionInitialDelay,
+            @Value("${company-metrics.consumer.adaptive-backoff.connection.max-delay}")
+                    Long connectionMaxDelay,
+            @Value("${company-metrics.consumer.adaptive-backoff.max-dispatch-pause}")
+                    Long maxDispatchPause,
+            MeterRegistry meterRegistry) {
+        this(enabled, throttledInitialDelay, throttledMaxDelay, throttledMaxRetryAfter,
+                connectionInitialDelay, connectionMaxDelay, maxDispatchPause, meterRegistry,
+                System::nanoTime);
+    }
+
+    MetricsApiBackoff(Boolean enabled, Long throttledInitialDelay, Long throttledMaxDelay,
+                      Long throttledMaxRetryAfter, Long connectionInitialDelay,
+                      Long connectionMaxDelay, Long maxDispatchPause,
+                      MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.enabled = Boolean.TRUE.equals(enabled);
+        this.throttledCurve = new Curve(throttledInitialDelay, throttledMaxDelay);
+        this.maxRetryAfter = Math.max(0L, throttledMaxRetryAfter);
+        this.connectionCurve = new Curve(connectionInitialDelay, connectionMaxDelay);
+        this.maxDispatchPauseNanos = TimeUnit.MILLISECONDS.toNanos(maxDispatchPause);
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+        for (MetricsType metricsType : MetricsType.values()) {
+            backoffs.put(metricsType, new Backoff(nanoTime.getAsLong()));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a 429 or 503 response to a recalculation of the given types of metrics, returning
+     * the delay before retrying it, or nothing when adaptive backoff is disabled.
+     *
+     * @param metricsTypes The types of metrics the recalculation was for.
+     * @param retryAfter   The Retry-After header of the response, which may be null.
+     */
+    public OptionalLong throttled(Collection<MetricsType> metricsTypes, String retryAfter) {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        long requested = Math.min(retryAfterMillis(retryAfter), maxRetryAfter);
+        long delay = 0L;
+        for (MetricsType metricsType : metricsTypes) {
+            Backoff backoff = backoffs.get(metricsType);
+            long typeDelay;
+            synchronized (backoff) {
+                backoff.throttledFailures = Math.min(backoff.throttledFailures + 1, MAX_FAILURES);
+                typeDelay = Math.max(throttledCurve.delay(backoff.throttledFailures),
+                        requested);
+                backoff.pauseFor(typeDelay, nanoTime.getAsLong());
+            }
+            meterRegistry.counter(THROTTLED_METRIC, DELTA_TYPE_TAG, metricsType.getDeltaType())
+                    .increment();
+            delay = Math.max(delay, typeDelay);
+        }
+        return OptionalLong.of(delay);
+    }
+
+    /**
+     * Records a timeout or connection error for a recalculation of the given types of metrics,
+     * returning the delay before retrying it, or nothing when adaptive backoff is disabled.
+     */
+    public OptionalLong connectionFailed(Collection<MetricsType> metricsTypes) {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        long delay = 0L;
+        for (MetricsType metricsType : metricsTypes) {
+            Backoff backoff = backoffs.get(metricsType);
+            long typeDelay;
+            synchronized (backoff) {
+                backoff.connectionFailures = Math.min(backoff.connectionFailures + 1,
+                        MAX_FAILURES);
+                typeDelay = connectionCurve.delay(backoff.connectionFailures);
+                backoff.pauseFor(typeDelay, nanoTime.getAsLong());
+            }
+            meterRegistry.counter(CONNECTION_METRIC, DELTA_TYPE_TAG, metricsType.getDeltaType())
+                    .increment();
+            delay = Math.max(delay, typeDelay);
+        }
+        return OptionalLong.of(delay);
+    }
+
+    /**
+     * Records a successful recalculation of the given type of metrics, resetting its curves.
+     */
+    public void succeeded(MetricsType metricsType) {
+        if (!enabled) {
+            return;
+        }
+        Backoff backoff = backoffs.get(metricsType);
+        synchronized (backoff) {
+            backoff.throttledFailures = 0;
+            backoff.connectionFailures = 0;
+        }
+    }
+
+    /**
+     * Returns how long, in nanoseconds, to defer the dispatch of a first attempt for the given
+     * type of metrics while its dispatch is paused, for no longer than the maximum dispatch
+     * pause, or zero when it is not paused. The caller defers the dispatch without blocking.
+     */
+    public long dispatchDelayNanos(MetricsType metricsType) {
+        long delayNanos = Math.min(dispatchPauseNanos(metricsType), maxDispatchPauseNanos);
+        if (delayNanos <= 0L) {
+            return 0L;
+        }
+        meterRegistry.counter(PAUSED_METRIC, DELTA_TYPE_TAG, metricsType.getDeltaType())
+                .increment();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format(PAUSE_MESSAGE, metricsType.getDeltaType(),
+                    TimeUnit.NANOSECONDS.toMillis(delayNanos)), DataMapHolder.getLogMap());
+        }
+        return delayNanos;
+    }
+
+    /**
+     * Returns how much longer the dispatch of first attempts for the given type of metrics is
+     * paused for.
+     */
+    long dispatchPauseNanos(MetricsType metricsType) {
+        if (!enabled) {
+            return 0L;
+        }
+        Backoff backoff = backoffs.get(metricsType);
+        synchronized (backoff) {
+            return Math.max(0L, backoff.pausedUntilNanos - nanoTime.getAsLong());
+        }
+    }
+
+    /**
+     * Returns the delay asked for by a Retry-After header, given either as a number of seconds
+     * or as an HTTP date, or zero when there is no header or it cannot be read.
+     */
+    static long retryAfterMillis(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return 0L;
+        }
+        String value = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0L, Long.parseLong(value)));
+        } catch (NumberFormatException ex) {
+            // not a number of seconds, so should be an HTTP date
+        }
+        try {
+            long until = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+            return Math.max(0L, until - System.currentTimeMillis());
+        } catch (DateTimeParseException ex) {
+            return 0L;
+        }
+    }
+
+    private static final class Curve {
+
+        private final long initialDelay;
+        private final long maxDelay;
+
+        private Curve(long initialDelay, long maxDelay) {
+            this.initialDelay = Math.max(1L, initialDelay);
+            this.maxDelay = Math.max(this.initialDelay, maxDelay);
+        }
+
+        /**
+         * Returns the delay after the given number of consecutive failures, with jitter.
+         */
+        long delay(int failures) {
+            int doublings = Math.min(failures - 1, Long.numberOfLeadingZeros(initialDelay) - 2);
+            long delay = Math.min(initialDelay << doublings, maxDelay);
+            return delay - ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        }
+    }
+
+    private static final class Backoff {
+
+        private int throttledFailures;
+        private int connectionFailures;
+        private long pausedUntilNanos;
+
+        private Backoff(long nowNanos) {
+            this.pausedUntilNanos = nowNanos;
+        }
+
+        void pauseFor(long delayMillis, long nowNanos) {
+            long until = nowNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            // a later failure never shortens a pause already under way
+            if (until - pausedUntilNanos > 0L) {
+                pausedUntilNanos = until;
+            }
+        }
+    }
+}
@@ -2,7 +2,11 @@ package uk.gov.companieshouse.company.metrics.service;
 
 import static uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication.APPLICATION_NAME_SPACE;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.OptionalLong;
+import java.util.Set;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.api.error.ApiErrorResponseException;
@@ -10,6 +14,7 @@ import uk.gov.companieshouse.api.handler.exception.URIValidationException;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
 import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
 
@@ -20,9 +25,19 @@ public class MetricsApiResponseHandler implements ResponseHandler {
     private static final String ERROR_MSG = "HTTP response code %s  when recalculating %s for "
             + "company %s";
     private static final String API_INFO_RESPONSE_MSG = "Call to API failed, status code: %d. %s";
+    private static final String THROTTLED_MSG = "Call to API throttled, status code: %d, when "
+            + "recalculating %s for company %s; retrying in %d ms";
+    private static final String CONNECTION_MSG = "Call to API failed with %s when recalculating "
+            + "%s for company %s; retrying in %d ms";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(APPLICATION_NAME_SPACE);
 
+    private final MetricsApiBackoff metricsApiBackoff;
+
+    public MetricsApiResponseHandler(MetricsApiBackoff metricsApiBackoff) {
+        this.metricsApiBackoff = metricsApiBackoff;
+    }
+
     /**
      * Handles logging an error message and throwing the appropriate exception when a
      * URIValidationException is caught in the client.
@@ -57,7 +72,9 @@ public class MetricsApiResponseHandler implements ResponseHandler {
 
     /**
      * Handles logging an error message and throwing the appropriate exception
-     * when an ApiErrorResponseException is caught in the client.
+     * when an ApiErrorResponseException is caught in the client. When adaptive backoff is
+     * enabled a 429 or 503 response is recorded against the {@link MetricsApiBackoff}, and the
+     * retryable exception thrown carries the delay it sets, honouring any Retry-After header.
      *
      * @param companyNumber The company number for the delta that has come through on the topic.
      * @param deltaType     The type of delta that has come through on the topic.
@@ -69,14 +86,62 @@ public class MetricsApiResponseHandler implements ResponseHandler {
                 deltaType, companyNumber);
         String infoMessage = String.format(API_INFO_RESPONSE_MSG, ex.getStatusCode(),
                 Arrays.toString(ex.getStackTrace()));
-        DataMapHolder.getLogMap().put("status", ex.getStatusCode());
+        DataMapHolder.get().status(ex.getStatusCode());
         if (HttpStatus.BAD_REQUEST.value() == ex.getStatusCode()
                 || HttpStatus.CONFLICT.value() == ex.getStatusCode()) {
             LOGGER.error(errorMessage, DataMapHolder.getLogMap());
             throw new NonRetryableErrorException(errorMessage, ex);
-        } else {
-            LOGGER.info(infoMessage, DataMapHolder.getLogMap());
-            throw new RetryableErrorException(infoMessage, ex);
         }
+        if (HttpStatus.TOO_MANY_REQUESTS.value() == ex.getStatusCode()
+                || HttpStatus.SERVICE_UNAVAILABLE.value() == ex.getStatusCode()) {
+            OptionalLong delay = metricsApiBackoff.throttled(metricsTypes(deltaType),
+                    ex.getHeaders() != null ? ex.getHeaders().getRetryAfter() : null);
+            if (delay.isPresent()) {
+                String message = String.format(THROTTLED_MSG, ex.getStatusCode(), deltaType,
+                        companyNumber, delay.getAsLong());
+                LOGGER.info(message, DataMapHolder.getLogMap());
+                throw new RetryableErrorException(message, ex, delay.getAsLong());
+            }
+        }
+        LOGGER.info(infoMessage, DataMapHolder.getLogMap());
+        throw new RetryableErrorException(infoMessage, ex);
+    }
+
+    /**
+     * Handles logging an error message and throwing the appropriate exception when a timeout
+     * or connection error is caught in the client. When adaptive backoff is enabled the failure
+     * is recorded against the {@link MetricsApiBackoff}, and the retryable exception thrown
+     * carries the delay it sets. Otherwise it is handled as an error response from the API.
+     *
+     * @param companyNumber The company number for the delta that has come through on the topic.
+     * @param deltaType     The type of delta that has come through on the topic.
+     * @param ex            The exception that was caught in the client.
+     */
+    @Override
+    public void handle(String companyNumber, String deltaType, IOException ex) {
+        OptionalLong delay = metricsApiBackoff.connectionFailed(metricsTypes(deltaType));
+        if (delay.isEmpty()) {
+            handle(companyNumber, deltaType, ApiErrorResponseException.fromIOException(ex));
+            return;
+        }
+        String message = String.format(CONNECTION_MSG, ex.getClass().getSimpleName(), deltaType,
+                companyNumber, delay.getAsLong());
+        LOGGER.info(message, DataMapHolder.getLogMap());
+        throw new RetryableErrorException(message, ex, delay.getAsLong());
+    }
+
+    /**
+     * Returns the metrics types for the delta type given by a client, which names each type
+     * separated by commas when a recalculation covers more than one.
+     */
+    private static Set<MetricsType> metricsTypes(String deltaType) {
+        Set<MetricsType> metricsTypes = EnumSet.noneOf(MetricsType.class);
+        for (String value : deltaType.split(",")) {
+            MetricsType metricsType = MetricsType.of(value);
+            if (metricsType != null) {
+                metricsTypes.add(metricsType);
+            }
+        }
+        return metricsTypes;
     }
 }
@@ -1,5 +1,16 @@
 package uk.gov.companieshouse.company.metrics.service;
 
+import java.util.Optional;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+
 public interface MetricsClient {
     void postMetrics(String companyNumber, String updatedBy, String resourceUri);
+
+    /**
+     * The metrics recalculated by this client, or empty when its requests cannot be merged with
+     * those of other clients.
+     */
+    default Optional<MetricsType> getMetricsType() {
+        return Optional.empty();
+    }
 }
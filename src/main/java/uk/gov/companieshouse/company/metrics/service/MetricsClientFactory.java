@@ -1,23 +1,49 @@
 package uk.gov.companieshouse.company.metrics.service;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Map;
 import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.company.metrics.type.EventType;
 
+/**
+ * Dispatches a delta type and event type to the client that recalculates its metrics. The
+ * configured clients are flattened into an array indexed by the ordinals of both types, with
+ * every combination that has no client holding the {@link NullMetricsClient}, so a lookup is a
+ * single array read.
+ */
 @Component
 public class MetricsClientFactory {
 
-    private final Map<String, Map<String, MetricsClient>> metricsClientMap;
+    private static final int EVENT_TYPES = EventType.values().length;
+
+    private final MetricsClient[] metricsClients;
     private final NullMetricsClient nullMetricsClient;
 
-    public MetricsClientFactory(Map<String, Map<String, MetricsClient>> metricsClientMap,
-                             NullMetricsClient nullMetricsClient) {
-        this.metricsClientMap = metricsClientMap;
+    /**
+     * Constructs a MetricsClientFactory.
+     */
+    public MetricsClientFactory(Map<DeltaType, Map<EventType, MetricsClient>> metricsClientMap,
+                                NullMetricsClient nullMetricsClient) {
         this.nullMetricsClient = nullMetricsClient;
+        this.metricsClients = new MetricsClient[DeltaType.values().length * EVENT_TYPES];
+        Arrays.fill(metricsClients, nullMetricsClient);
+        metricsClientMap.forEach((deltaType, clients) -> clients.forEach((eventType, client) ->
+                metricsClients[index(deltaType, eventType)] = client));
+    }
+
+    /**
+     * Returns the client for the delta type and event type, or the {@link NullMetricsClient}
+     * when either is unknown.
+     */
+    public MetricsClient getMetricsClient(DeltaType deltaType, EventType eventType) {
+        if (deltaType == null || eventType == null) {
+            return nullMetricsClient;
+        }
+        return metricsClients[index(deltaType, eventType)];
     }
 
-    public MetricsClient getMetricsClient(String deltaType, String eventType) {
-        return metricsClientMap.getOrDefault(deltaType, Collections.emptyMap())
-                .getOrDefault(eventType, nullMetricsClient);
+    private static int index(DeltaType deltaType, EventType eventType) {
+        return deltaType.ordinal() * EVENT_TYPES + eventType.ordinal();
     }
 }
@@ -1,59 +1,37 @@
 package uk.gov.companieshouse.company.metrics.service;
 
-import java.util.function.Supplier;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
 import org.springframework.stereotype.Component;
-import uk.gov.companieshouse.api.InternalApiClient;
-import uk.gov.companieshouse.api.error.ApiErrorResponseException;
-import uk.gov.companieshouse.api.handler.exception.URIValidationException;
-import uk.gov.companieshouse.api.metrics.MetricsRecalculateApi;
-import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
 import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiTransformer;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
 
 
 @Component("registersClient")
-public class RegistersClient implements MetricsClient {
+public class RegistersClient extends AbstractMetricsClient implements MetricsClient {
 
     private static final String REGISTERS_DELTA_TYPE = "registers";
-    private static final boolean IS_MORTGAGE = false;
-    private static final boolean IS_APPOINTMENT = false;
-    private static final boolean IS_PSC = false;
-    private static final boolean IS_REGISTERS = true;
-
-    private final Supplier<InternalApiClient> internalApiClientFactory;
-    private final CompanyMetricsApiTransformer metricsApiTransformer;
-    private final ResponseHandler metricsApiResponseHandler;
+    private static final Set<MetricsType> METRICS_TYPES = EnumSet.of(MetricsType.REGISTERS);
 
     /**
      * Constructor to construct and return instance of
      * changedChargesClient - used to post a recalculation of company charges metrics.
      */
-    public RegistersClient(Supplier<InternalApiClient> internalApiClientFactory,
+    public RegistersClient(InternalApiClientPool internalApiClientPool,
                            CompanyMetricsApiTransformer metricsApiTransformer,
                            ResponseHandler metricsApiResponseHandler) {
-        this.internalApiClientFactory = internalApiClientFactory;
-        this.metricsApiTransformer = metricsApiTransformer;
-        this.metricsApiResponseHandler = metricsApiResponseHandler;
+        super(internalApiClientPool, metricsApiTransformer, metricsApiResponseHandler);
     }
 
     @Override
     public void postMetrics(String companyNumber, String updatedBy,
                             String resourceUri) {
-        InternalApiClient client = internalApiClientFactory.get();
-        client.getHttpClient().setRequestId(DataMapHolder.getRequestId());
-        try {
-            MetricsRecalculateApi metricsRecalculateApi = metricsApiTransformer
-                    .transform(updatedBy, IS_MORTGAGE, IS_APPOINTMENT, IS_PSC, IS_REGISTERS);
-            client.privateCompanyMetricsUpsertHandler()
-                    .postCompanyMetrics(
-                            String.format("/company/%s/metrics/recalculate", companyNumber),
-                            metricsRecalculateApi)
-                    .execute();
-        } catch (ApiErrorResponseException ex) {
-            metricsApiResponseHandler.handle(companyNumber, REGISTERS_DELTA_TYPE, ex);
-        } catch (IllegalArgumentException ex) {
-            metricsApiResponseHandler.handle(companyNumber, REGISTERS_DELTA_TYPE, ex);
-        } catch (URIValidationException ex) {
-            metricsApiResponseHandler.handle(companyNumber, REGISTERS_DELTA_TYPE, ex);
-        }
+        post(companyNumber, updatedBy, REGISTERS_DELTA_TYPE, METRICS_TYPES);
+    }
+
+    @Override
+    public Optional<MetricsType> getMetricsType() {
+        return Optional.of(MetricsType.REGISTERS);
     }
 }
@@ -1,5 +1,6 @@
 package uk.gov.companieshouse.company.metrics.service;
 
+import java.io.IOException;
 import uk.gov.companieshouse.api.error.ApiErrorResponseException;
 import uk.gov.companieshouse.api.handler.exception.URIValidationException;
 
@@ -9,4 +10,6 @@ public interface ResponseHandler {
     void handle(String companyNumber, String deltaType, ApiErrorResponseException exception);
 
     void handle(String companyNumber, String deltaType, URIValidationException exception);
+
+    void handle(String companyNumber, String deltaType, IOException exception);
 }
@@ -0,0 +1,121 @@
+package uk.gov.companieshouse.company.metrics.transformer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodes recalculate requests for company-metrics-api without building a
+ * MetricsRecalculateApi per message. The body for each combination of metrics flags is
+ * serialised once, with a placeholder for updated by, and split into the bytes either side of
+ * it. Encoding a request then copies those bytes either side of the quoted updated by, giving
+ * the same body the ObjectMapper writes for the transformed request.
+ */
+@Component
+public class CompanyMetricsApiRequestEncoder {
+
+    private static final String PATH_PREFIX = "/company/";
+    private static final String PATH_SUFFIX = "/metrics/recalculate";
+    private static final String PLACEHOLDER = "\u0000updated-by\u0000";
+    private static final int FLAGS = 4;
+
+    private final ObjectMapper objectMapper;
+    private final byte[][] prefixes = new byte[1 << FLAGS][];
+    private final byte[][] suffixes = new byte[1 << FLAGS][];
+
+    /**
+     * Constructs a CompanyMetricsApiRequestEncoder, serialising a template for each combination
+     * of metrics flags.
+     */
+    public CompanyMetricsApiRequestEncoder(ObjectMapper objectMapper,
+                                           CompanyMetricsApiTransformer metricsApiTransformer) {
+        this.objectMapper = objectMapper;
+        byte[] placeholder = quoted(PLACEHOLDER);
+        for (int flags = 0; flags < prefixes.length; flags++) {
+            byte[] template = serialise(metricsApiTransformer.transform(PLACEHOLDER,
+                    (flags & 8) != 0, (flags & 4) != 0, (flags & 2) != 0, (flags & 1) != 0));
+            int start = indexOf(template, placeholder);
+            prefixes[flags] = Arrays.copyOfRange(template, 0, start);
+            suffixes[flags] = Arrays.copyOfRange(template, start + placeholder.length,
+                    template.length);
+        }
+    }
+
+    /**
+     * Returns the path of the recalculate endpoint for the company.
+     */
+    public static String recalculatePath(String companyNumber) {
+        return PATH_PREFIX + companyNumber + PATH_SUFFIX;
+    }
+
+    /**
+     * Returns the JSON body of a recalculate request, byte for byte as the ObjectMapper writes
+     * the request built by {@link CompanyMetricsApiTransformer#transform}.
+     */
+    public byte[] encode(String updatedBy,
+                         boolean isMortgage,
+                         boolean isAppointment,
+                         boolean isPsc,
+                         boolean isRegister) {
+        int flags = (isMortgage ? 8 : 0) | (isAppointment ? 4 : 0) | (isPsc ? 2 : 0)
+                | (isRegister ? 1 : 0);
+        byte[] prefix = prefixes[flags];
+        byte[] suffix = suffixes[flags];
+        if (isPlain(updatedBy)) {
+            // printable ASCII other than quote and backslash is written as it is
+            int length = updatedBy.length();
+            byte[] body = new byte[prefix.length + length + suffix.length];
+            System.arraycopy(prefix, 0, body, 0, prefix.length);
+            for (int index = 0; index < length; index++) {
+                body[prefix.length + index] = (byte) updatedBy.charAt(index);
+            }
+            System.arraycopy(suffix, 0, body, prefix.length + length, suffix.length);
+            return body;
+        }
+        byte[] quoted = quoted(updatedBy);
+        byte[] body = new byte[prefix.length + quoted.length + suffix.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        System.arraycopy(quoted, 0, body, prefix.length, quoted.length);
+        System.arraycopy(suffix, 0, body, prefix.length + quoted.length, suffix.length);
+        return body;
+    }
+
+    private static boolean isPlain(String value) {
+        for (int index = 0; index < value.length(); index++) {
+            char character = value.charAt(index);
+            if (character < 0x20 || character > 0x7E || character == '"' || character == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value as the ObjectMapper writes it within a JSON string, without the
+     * surrounding quotes.
+     */
+    private byte[] quoted(String value) {
+        byte[] json = serialise(value);
+        return Arrays.copyOfRange(json, 1, json.length - 1);
+    }
+
+    private byte[] serialise(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    private static int indexOf(byte[] template, byte[] placeholder) {
+        String json = new String(template, StandardCharsets.ISO_8859_1);
+        int start = json.indexOf(new String(placeholder, StandardCharsets.ISO_8859_1));
+        if (start < 0 || json.indexOf(new String(placeholder, StandardCharsets.ISO_8859_1),
+                start + 1) >= 0) {
+            throw new IllegalStateException("Updated by does not appear once in request body");
+        }
+        return start;
+    }
+}
@@ -0,0 +1,115 @@
+package uk.gov.companieshouse.company.metrics.type;
+
+/**
+ * Packs a company number into a primitive long so per company state can be keyed without a
+ * String per record. Company numbers are 6 to 10 ASCII letters and digits, each of which is
+ * encoded in 6 bits as a non-zero code, first character most significant, so every key is
+ * non-zero and the length is recovered from the highest set bit.
+ */
+public final class CompanyKey {
+
+    public static final int MIN_LENGTH = 6;
+    public static final int MAX_LENGTH = 10;
+
+    private static final int BITS_PER_CHARACTER = 6;
+    private static final long CHARACTER_MASK = (1L << BITS_PER_CHARACTER) - 1;
+    private static final String ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final String INVALID_COMPANY_NUMBER = "Invalid company number: %s";
+
+    private CompanyKey() {
+    }
+
+    /**
+     * Returns whether the company number can be packed into a key.
+     */
+    public static boolean isValid(CharSequence companyNumber) {
+        if (companyNumber == null || companyNumber.length() < MIN_LENGTH
+                || companyNumber.length() > MAX_LENGTH) {
+            return false;
+        }
+        for (int index = 0; index < companyNumber.length(); index++) {
+            if (code(companyNumber.charAt(index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs a company number into a key.
+     *
+     * @throws IllegalArgumentException if the company number is not 6 to 10 letters and digits.
+     */
+    public static long encode(CharSequence companyNumber) {
+        if (companyNumber == null) {
+            throw new IllegalArgumentException(
+                    String.format(INVALID_COMPANY_NUMBER, (Object) null));
+        }
+        return encode(companyNumber, 0, companyNumber.length());
+    }
+
+    /**
+     * Packs the company number between start and end of the given characters into a key.
+     *
+     * @throws IllegalArgumentException if the company number is not 6 to 10 letters and digits.
+     */
+    public static long encode(CharSequence characters, int start, int end) {
+        int length = end - start;
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException(String.format(INVALID_COMPANY_NUMBER,
+                    characters.subSequence(start, end)));
+        }
+        long key = 0;
+        for (int index = start; index < end; index++) {
+            int code = code(characters.charAt(index));
+            if (code == 0) {
+                throw new IllegalArgumentException(String.format(INVALID_COMPANY_NUMBER,
+                        characters.subSequence(start, end)));
+            }
+            key = (key << BITS_PER_CHARACTER) | code;
+        }
+        return key;
+    }
+
+    /**
+     * Unpacks the company number held in a key.
+     *
+     * @throws IllegalArgumentException if the value was not produced by {@link #encode}.
+     */
+    public static String decode(long key) {
+        int length = length(key);
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException(String.format(INVALID_COMPANY_NUMBER, key));
+        }
+        char[] companyNumber = new char[length];
+        for (int index = length - 1; index >= 0; index--) {
+            int code = (int) (key & CHARACTER_MASK);
+            if (code == 0 || code > ALPHABET.length()) {
+                throw new IllegalArgumentException(String.format(INVALID_COMPANY_NUMBER, key));
+            }
+            companyNumber[index] = ALPHABET.charAt(code - 1);
+            key >>>= BITS_PER_CHARACTER;
+        }
+        return new String(companyNumber);
+    }
+
+    /**
+     * Returns the number of characters in the company number held in a key.
+     */
+    public static int length(long key) {
+        return (Long.SIZE - Long.numberOfLeadingZeros(key) + BITS_PER_CHARACTER - 1)
+                / BITS_PER_CHARACTER;
+    }
+
+    private static int code(char character) {
+        if (character >= '0' && character <= '9') {
+            return character - '0' + 1;
+        } else if (character >= 'A' && character <= 'Z') {
+            return character - 'A' + 11;
+        } else if (character >= 'a' && character <= 'z') {
+            return character - 'a' + 37;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,125 @@
+package uk.gov.companieshouse.company.metrics.type;
+
+import java.util.Arrays;
+
+/**
+ * A map from {@link CompanyKey} keys to values, held in open addressed arrays with linear
+ * probing rather than as an entry object per company. The arrays have a power of two capacity
+ * and are kept at most half full so probe sequences stay short. Zero marks an empty slot, which
+ * no company key can be. Not thread safe.
+ *
+ * @param <V> The type of value held for each company.
+ */
+public class CompanyKeyMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public CompanyKeyMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a CompanyKeyMap sized to hold expectedSize companies without resizing.
+     */
+    public CompanyKeyMap(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value held for the key, or null when there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return null;
+        }
+        int slot = slot(keys, key);
+        return keys[slot] == key ? (V) values[slot] : null;
+    }
+
+    /**
+     * Holds the value for the key, returning the value it replaced or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Company key must not be zero");
+        }
+        int slot = slot(keys, key);
+        if (keys[slot] == key) {
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > maxSize(keys.length)) {
+            resize();
+        }
+        return null;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        for (int index = 0; index < oldKeys.length; index++) {
+            if (oldKeys[index] != 0) {
+                int slot = slot(keys, oldKeys[index]);
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative");
+        }
+        if (expectedSize >= MAX_CAPACITY / 2) {
+            return MAX_CAPACITY;
+        }
+        return Math.max(Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 1)) << 1, 2);
+    }
+
+    private static int maxSize(int capacity) {
+        return capacity / 2;
+    }
+
+    /**
+     * Returns the slot holding the key, or the empty slot where it would be held. Callers must
+     * not look up zero, as it would be found in any empty slot.
+     */
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        long mixed = key * GOLDEN_RATIO;
+        int slot = (int) (mixed ^ (mixed >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,37 @@
+package uk.gov.companieshouse.company.metrics.type;
+
+/**
+ * The types of delta a resource changed record is consumed for, fixed by the consumer that
+ * received it.
+ */
+public enum DeltaType {
+
+    CHARGES("charges"),
+    OFFICERS("officers"),
+    PSCS("pscs"),
+    REGISTERS("registers");
+
+    private static final DeltaType[] VALUES = values();
+
+    private final String value;
+
+    DeltaType(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the delta type with the given value, or null when there is none.
+     */
+    public static DeltaType of(String value) {
+        for (DeltaType deltaType : VALUES) {
+            if (deltaType.value.equals(value)) {
+                return deltaType;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package uk.gov.companieshouse.company.metrics.type;
+
+/**
+ * The types of event carried on a resource changed record.
+ */
+public enum EventType {
+
+    CHANGED("changed"),
+    DELETED("deleted");
+
+    private final String value;
+
+    EventType(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the event type with the given value, or null when there is none.
+     */
+    public static EventType of(String value) {
+        if (CHANGED.value.equals(value)) {
+            return CHANGED;
+        } else if (DELETED.value.equals(value)) {
+            return DELETED;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package uk.gov.companieshouse.company.metrics.type;
+
+/**
+ * The metrics recalculated by company-metrics-api, one for each flag on a
+ * MetricsRecalculateApi request.
+ */
+public enum MetricsType {
+
+    MORTGAGE("charges"),
+    APPOINTMENTS("appointments"),
+    PSC("pscs"),
+    REGISTERS("registers");
+
+    private static final MetricsType[] VALUES = values();
+
+    private final String deltaType;
+
+    MetricsType(String deltaType) {
+        this.deltaType = deltaType;
+    }
+
+    public String getDeltaType() {
+        return deltaType;
+    }
+
+    /**
+     * Returns the metrics type with the given delta type, or null when there is none.
+     */
+    public static MetricsType of(String deltaType) {
+        for (MetricsType metricsType : VALUES) {
+            if (metricsType.deltaType.equals(deltaType)) {
+                return metricsType;
+            }
+        }
+        return null;
+    }
+}
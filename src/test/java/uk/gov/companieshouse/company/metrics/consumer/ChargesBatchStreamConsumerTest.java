@@ -0,0 +1,146 @@
+package uk.gov.companieshouse.company.metrics.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import uk.gov.companieshouse.company.metrics.CompanyMetricsConsumerApplication;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+import uk.gov.companieshouse.company.metrics.processor.BatchMetricsRouter;
+import uk.gov.companieshouse.company.metrics.processor.MetricsRouter;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.company.metrics.util.TestConfig;
+import uk.gov.companieshouse.company.metrics.util.TestUtils;
+import uk.gov.companieshouse.stream.EventRecord;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+@SpringBootTest(classes = CompanyMetricsConsumerApplication.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@EmbeddedKafka(
+        topics = {"stream-company-charges", "stream-company-charges-company-metrics-consumer-retry", "stream-company-charges-company-metrics-consumer-error"
+        , "stream-company-charges-company-metrics-consumer-invalid"},
+        controlledShutdown = true,
+        partitions = 1
+)
+@TestPropertySource(locations = "classpath:application-test_consumer_main.properties",
+        properties = "company-metrics.consumer.batch.enable=true")
+@Import(TestConfig.class)
+@ActiveProfiles("test_consumer_main")
+class ChargesBatchStreamConsumerTest {
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Autowired
+    private KafkaConsumer<String, byte[]> testConsumer;
+
+    @Autowired
+    private KafkaProducer<String, byte[]> testProducer;
+
+    @MockitoBean
+    private BatchMetricsRouter batchRouter;
+
+    @MockitoBean
+    private MetricsRouter router;
+
+    @Test
+    void testConsumeBatch() throws IOException {
+        //given
+        embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
+
+        //when
+        testProducer.send(new ProducerRecord<>("stream-company-charges", 0, System.currentTimeMillis(), "key", encodedMessage()));
+
+        //then
+        verify(batchRouter, timeout(30000L)).route(any(), eq(DeltaType.CHARGES));
+        verify(router, never()).route(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testConsumeRetryTopicInBatchMode() throws IOException {
+        //given
+        embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
+
+        //when
+        testProducer.send(new ProducerRecord<>("stream-company-charges-company-metrics-consumer-retry", 0, System.currentTimeMillis(), "key", encodedMessage()));
+
+        //then
+        verify(router, timeout(30000L)).route(any(), eq(DeltaType.CHARGES), any(), anyBoolean());
+        verify(batchRouter, never()).route(any(), any());
+    }
+
+    @Test
+    void testPublishToInvalidMessageTopicIfNonRetryableExceptionThrown() throws IOException {
+        //given
+        embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
+        doThrow(new BatchListenerFailedException("failed", new NonRetryableErrorException("failed"), 0))
+                .when(batchRouter).route(any(), any());
+
+        //when
+        testProducer.send(new ProducerRecord<>("stream-company-charges", 0, System.currentTimeMillis(), "key", encodedMessage()));
+        ConsumerRecords<?, ?> consumerRecords = KafkaTestUtils.getRecords(testConsumer, Duration.ofMillis(10000L), 2);
+
+        //then
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges")).isEqualTo(1);
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-retry")).isZero();
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-error")).isZero();
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-invalid")).isEqualTo(1);
+    }
+
+    @Test
+    void testPublishToErrorTopicAfterRetriesInPlace() throws IOException {
+        //given
+        embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
+        doThrow(new BatchListenerFailedException("failed", new RetryableErrorException("failed"), 0))
+                .when(batchRouter).route(any(), any());
+
+        //when
+        testProducer.send(new ProducerRecord<>("stream-company-charges", 0, System.currentTimeMillis(), "key", encodedMessage()));
+        ConsumerRecords<?, ?> consumerRecords = KafkaTestUtils.getRecords(testConsumer, Duration.ofMillis(10000L), 2);
+
+        //then
+        verify(batchRouter, timeout(30000L).times(4)).route(any(), any());
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges")).isEqualTo(1);
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-retry")).isZero();
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-error")).isEqualTo(1);
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-invalid")).isZero();
+    }
+
+    private static byte[] encodedMessage() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Encoder encoder = EncoderFactory.get().directBinaryEncoder(outputStream, null);
+        DatumWriter<ResourceChangedData> writer = new ReflectDatumWriter<>(ResourceChangedData.class);
+        writer.write(new ResourceChangedData("resource_kind", "resource_uri", "context_id", "resource_id", "{}",
+                new EventRecord("published_at", "event_type", null)), encoder);
+        return outputStream.toByteArray();
+    }
+}
@@ -3,12 +3,17 @@ package uk.gov.companieshouse.company.metrics.consumer;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -73,6 +78,8 @@ class ChargesStreamConsumerTest {
     @BeforeEach
     public void beforeEach() {
         resettableCountDownLatch.resetLatch(4);
+        when(router.route(any(), any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.completedFuture(null));
     }
 
     @Test
@@ -95,7 +102,7 @@ class ChargesStreamConsumerTest {
 
         //then
         assertThat(records.count()).isEqualTo(1);
-        verify(router).route(any(), any(), any());
+        verify(router).route(any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -107,7 +114,7 @@ class ChargesStreamConsumerTest {
         writer.write(new ResourceChangedData("resource_kind", "resource_uri", "context_id", "resource_id", "{}",
                 new EventRecord("published_at", "event_type", null)), encoder);
         embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
-        doThrow(NonRetryableErrorException.class).when(router).route(any(), any(), any());
+        doThrow(NonRetryableErrorException.class).when(router).route(any(), any(), any(), anyBoolean());
 
         //when
         testProducer.send(new ProducerRecord<>("stream-company-charges", 0, System.currentTimeMillis(), "key", outputStream.toByteArray()));
@@ -132,7 +139,35 @@ class ChargesStreamConsumerTest {
         writer.write(new ResourceChangedData("resource_kind", "resource_uri", "context_id", "resource_id", "{}",
                 new EventRecord("published_at", "event_type", null)), encoder);
         embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
-        doThrow(RetryableErrorException.class).when(router).route(any(), any(), any());
+        doThrow(RetryableErrorException.class).when(router).route(any(), any(), any(), anyBoolean());
+
+        //when
+        testProducer.send(new ProducerRecord<>("stream-company-charges", 0, System.currentTimeMillis(), "key", outputStream.toByteArray()));
+        if (!resettableCountDownLatch.getCountDownLatch().await(30L, TimeUnit.SECONDS)) {
+            fail("Timed out waiting for latch");
+        }
+        ConsumerRecords<?, ?> consumerRecords = KafkaTestUtils.getRecords(testConsumer, Duration.ofMillis(10000L), 6);
+
+        //then
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges")).isEqualTo(1);
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-retry")).isEqualTo(3);
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-error")).isEqualTo(1);
+        assertThat(TestUtils.noOfRecordsForTopic(consumerRecords, "stream-company-charges-company-metrics-consumer-invalid")).isZero();
+        verify(router).route(any(), any(), any(), eq(false));
+        verify(router, times(3)).route(any(), any(), any(), eq(true));
+    }
+
+    @Test
+    void testRepublishToErrorTopicThroughRetryTopicsIfRecalculationFails() throws InterruptedException, IOException {
+        //given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Encoder encoder = EncoderFactory.get().directBinaryEncoder(outputStream, null);
+        DatumWriter<ResourceChangedData> writer = new ReflectDatumWriter<>(ResourceChangedData.class);
+        writer.write(new ResourceChangedData("resource_kind", "resource_uri", "context_id", "resource_id", "{}",
+                new EventRecord("published_at", "event_type", null)), encoder);
+        embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
+        when(router.route(any(), any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.failedFuture(new RetryableErrorException("failed")));
 
         //when
         testProducer.send(new ProducerRecord<>("stream-company-charges", 0, System.currentTimeMillis(), "key", outputStream.toByteArray()));
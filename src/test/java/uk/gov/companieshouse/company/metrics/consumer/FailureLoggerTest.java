@@ -0,0 +1,62 @@
+package uk.gov.companieshouse.company.metrics.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+
+class FailureLoggerTest {
+
+    @Test
+    @DisplayName("A recalculation that has already failed should be returned unchanged")
+    void returnsFailedRecalculation() {
+        // given
+        CompletableFuture<Void> recalculation =
+                CompletableFuture.failedFuture(new RetryableErrorException("failed"));
+
+        // when
+        CompletableFuture<Void> returned = FailureLogger.logFailure(recalculation,
+                "context_id", "Exception occurred while processing message");
+
+        // then
+        assertThat(returned).isSameAs(recalculation);
+        assertThat(returned).isCompletedExceptionally();
+    }
+
+    @Test
+    @DisplayName("A recalculation that fails after it is returned should still fail")
+    void returnsRecalculationThatFailsLater() {
+        // given
+        CompletableFuture<Void> recalculation = new CompletableFuture<>();
+
+        // when
+        CompletableFuture<Void> returned = FailureLogger.logFailure(recalculation,
+                "context_id", "Exception occurred while processing message");
+        recalculation.completeExceptionally(new RetryableErrorException("failed"));
+
+        // then
+        assertThat(returned).isSameAs(recalculation);
+        assertThat(returned).failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(RetryableErrorException.class);
+    }
+
+    @Test
+    @DisplayName("A cancelled recalculation should be returned without being logged as failed")
+    void returnsCancelledRecalculation() {
+        // given
+        CompletableFuture<Void> recalculation = new CompletableFuture<>();
+        recalculation.cancel(false);
+
+        // when
+        CompletableFuture<Void> returned = FailureLogger.logFailure(recalculation,
+                "context_id", "Exception occurred while processing message");
+
+        // then
+        assertThat(returned).isSameAs(recalculation).isCancelled();
+    }
+}
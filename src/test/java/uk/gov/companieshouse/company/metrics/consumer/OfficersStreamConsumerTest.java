@@ -3,12 +3,15 @@ package uk.gov.companieshouse.company.metrics.consumer;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -76,6 +79,8 @@ class OfficersStreamConsumerTest {
     @BeforeEach
     public void beforeEach() {
         resettableCountDownLatch.resetLatch(4);
+        when(router.route(any(), any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.completedFuture(null));
     }
 
     @Test
@@ -100,7 +105,7 @@ class OfficersStreamConsumerTest {
 
         //then
         assertThat(records.count()).isEqualTo(1);
-        verify(router).route(any(), any(), any());
+        verify(router).route(any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -112,7 +117,7 @@ class OfficersStreamConsumerTest {
         writer.write(new ResourceChangedData("resource_kind", "resource_uri", "context_id", "resource_id", "{}",
                 new EventRecord("published_at", "event_type", null)), encoder);
         embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
-        doThrow(NonRetryableErrorException.class).when(router).route(any(), any(), any());
+        doThrow(NonRetryableErrorException.class).when(router).route(any(), any(), any(), anyBoolean());
 
         //when
         testProducer.send(new ProducerRecord<>("stream-company-officers", 0, System.currentTimeMillis(), "key", outputStream.toByteArray()));
@@ -137,7 +142,7 @@ class OfficersStreamConsumerTest {
         writer.write(new ResourceChangedData("resource_kind", "resource_uri", "context_id", "resource_id", "{}",
                 new EventRecord("published_at", "event_type", null)), encoder);
         embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
-        doThrow(RetryableErrorException.class).when(router).route(any(), any(), any());
+        doThrow(RetryableErrorException.class).when(router).route(any(), any(), any(), anyBoolean());
 
         //when
         testProducer.send(new ProducerRecord<>("stream-company-officers", 0, System.currentTimeMillis(), "key", outputStream.toByteArray()));
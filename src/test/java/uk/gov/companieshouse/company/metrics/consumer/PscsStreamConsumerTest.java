@@ -4,11 +4,14 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -77,6 +80,8 @@ class PscsStreamConsumerTest {
     @BeforeEach
     public void beforeEach() {
         resettableCountDownLatch.resetLatch(4);
+        when(router.route(any(), any(), any(), anyBoolean()))
+                .thenReturn(CompletableFuture.completedFuture(null));
     }
 
     @Test
@@ -101,7 +106,7 @@ class PscsStreamConsumerTest {
 
         //then
         assertThat(records.count(), is(1));
-        verify(router).route(any(), any(), any());
+        verify(router).route(any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -113,7 +118,7 @@ class PscsStreamConsumerTest {
         writer.write(new ResourceChangedData("resource_kind", "resource_uri", "context_id", "resource_id", "{}",
                 new EventRecord("published_at", "event_type", null)), encoder);
         embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
-        doThrow(NonRetryableErrorException.class).when(router).route(any(), any(), any());
+        doThrow(NonRetryableErrorException.class).when(router).route(any(), any(), any(), anyBoolean());
 
         //when
         testProducer.send(new ProducerRecord<>("stream-psc-statements", 0, System.currentTimeMillis(), "key", outputStream.toByteArray()));
@@ -138,7 +143,7 @@ class PscsStreamConsumerTest {
         writer.write(new ResourceChangedData("resource_kind", "resource_uri", "context_id", "resource_id", "{}",
                 new EventRecord("published_at", "event_type", null)), encoder);
         embeddedKafkaBroker.consumeFromAllEmbeddedTopics(testConsumer);
-        doThrow(RetryableErrorException.class).when(router).route(any(), any(), any());
+        doThrow(RetryableErrorException.class).when(router).route(any(), any(), any(), anyBoolean());
 
         //when
         testProducer.send(new ProducerRecord<>("stream-psc-statements", 0, System.currentTimeMillis(), "key", outputStream.toByteArray()));
@@ -0,0 +1,114 @@
+package uk.gov.companieshouse.company.metrics.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import uk.gov.companieshouse.company.metrics.processor.MetricsRouter;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.stream.EventRecord;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+/**
+ * Fails the build if receiving a record regresses past its allocation budget. The router is
+ * replaced by one that allocates nothing, so only the consumer's own work is measured: the
+ * updated by value passed to the router, which is the one allocation left on the path. The
+ * unit tests hold one consumer to a tolerant budget, still well below the formatting and
+ * timing that were removed from the path, and the perf profile holds every consumer to the
+ * tight budget.
+ */
+class StreamConsumerAllocationTest {
+
+    private static final long BYTES_PER_MESSAGE_BUDGET = 128L;
+    private static final long TOLERANT_BYTES_PER_MESSAGE_BUDGET = 512L;
+    private static final int WARM_UP = 50_000;
+    private static final int MESSAGES = 10_000;
+    private static final CompletableFuture<Void> ROUTED = CompletableFuture.completedFuture(null);
+
+    private final MetricsRouter router = new MetricsRouter(null, null, null, null, null, null, null) {
+        @Override
+        public CompletableFuture<Void> route(ResourceChangedData data, DeltaType deltaType,
+                                             String updatedBy, boolean retry) {
+            return ROUTED;
+        }
+    };
+
+    private final Message<ResourceChangedData> message = MessageBuilder.withPayload(
+            new ResourceChangedData("company-charges", "/company/01203396/charges",
+                    "context_id", "resource_id", "{}",
+                    new EventRecord("published_at", "changed", null))).build();
+
+    @Test
+    void When_chargesReceive_Expect_WithinTolerantAllocationBudget() {
+        ChargesStreamConsumer consumer = new ChargesStreamConsumer(router, null);
+
+        assertThat(bytesPerMessage(offset ->
+                consumer.receive(message, "stream-company-charges", 0, offset, null)))
+                .isLessThanOrEqualTo(TOLERANT_BYTES_PER_MESSAGE_BUDGET);
+    }
+
+    @Test
+    @Tag("perf")
+    void When_chargesReceive_Expect_WithinAllocationBudget() {
+        ChargesStreamConsumer consumer = new ChargesStreamConsumer(router, null);
+
+        assertThat(bytesPerMessage(offset ->
+                consumer.receive(message, "stream-company-charges", 0, offset, null)))
+                .isLessThanOrEqualTo(BYTES_PER_MESSAGE_BUDGET);
+    }
+
+    @Test
+    @Tag("perf")
+    void When_officersReceive_Expect_WithinAllocationBudget() {
+        OfficersStreamConsumer consumer = new OfficersStreamConsumer(router, null);
+
+        assertThat(bytesPerMessage(offset ->
+                consumer.receive(message, "stream-company-officers", 0, offset, null)))
+                .isLessThanOrEqualTo(BYTES_PER_MESSAGE_BUDGET);
+    }
+
+    @Test
+    @Tag("perf")
+    void When_pscsReceive_Expect_WithinAllocationBudget() {
+        PscEventStreamConsumer consumer = new PscEventStreamConsumer(router, null);
+
+        assertThat(bytesPerMessage(offset ->
+                consumer.receive(message, "stream-company-psc", 0, offset, null)))
+                .isLessThanOrEqualTo(BYTES_PER_MESSAGE_BUDGET);
+    }
+
+    @Test
+    @Tag("perf")
+    void When_registersReceive_Expect_WithinAllocationBudget() {
+        RegistersStreamConsumer consumer = new RegistersStreamConsumer(router, null);
+
+        assertThat(bytesPerMessage(offset ->
+                consumer.receive(message, "stream-registers", 0, offset, null)))
+                .isLessThanOrEqualTo(BYTES_PER_MESSAGE_BUDGET);
+    }
+
+    private static long bytesPerMessage(Receive receive) {
+        ThreadMXBean threadMxBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long offset = 100_000_000L;
+        for (int i = 0; i < WARM_UP; i++) {
+            receive.receive(offset++);
+        }
+
+        long start = threadMxBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MESSAGES; i++) {
+            receive.receive(offset++);
+        }
+        return (threadMxBean.getCurrentThreadAllocatedBytes() - start) / MESSAGES;
+    }
+
+    @FunctionalInterface
+    private interface Receive {
+
+        void receive(long offset);
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gov.companieshouse.company.metrics.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class UpdatedByCacheTest {
+
+    private final UpdatedByCache updatedByCache = new UpdatedByCache();
+
+    @Test
+    @DisplayName("Updated by should be the topic, partition and offset of the record")
+    void updatedByIsTopicPartitionOffset() {
+        // when
+        String updatedBy = updatedByCache.updatedBy("stream-company-charges", 3, 123456789L);
+
+        // then
+        assertThat(updatedBy).isEqualTo(String.format("%s-%s-%s",
+                "stream-company-charges", 3, 123456789L));
+    }
+
+    @Test
+    @DisplayName("Updated by should keep the prefixes of every topic and partition seen")
+    void updatedByKeepsEveryPartition() {
+        // when
+        String highPartition = updatedByCache.updatedBy("stream-company-charges", 11, 1L);
+        String lowPartition = updatedByCache.updatedBy("stream-company-charges", 0, 2L);
+        String otherTopic = updatedByCache.updatedBy("stream-company-charges-retry", 11, 3L);
+        String again = updatedByCache.updatedBy("stream-company-charges", 11, 4L);
+
+        // then
+        assertThat(highPartition).isEqualTo("stream-company-charges-11-1");
+        assertThat(lowPartition).isEqualTo("stream-company-charges-0-2");
+        assertThat(otherTopic).isEqualTo("stream-company-charges-retry-11-3");
+        assertThat(again).isEqualTo("stream-company-charges-11-4");
+    }
+}
@@ -0,0 +1,220 @@
+package uk.gov.companieshouse.company.metrics.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.logging.util.DataMap;
+
+class DataMapHolderTest {
+
+    private static final int MESSAGES = 10_000;
+
+    @AfterEach
+    void tearDown() {
+        DataMapHolder.clear();
+    }
+
+    @Test
+    void When_getLogMap_Expect_SameMapAsDataMapBuilder() {
+        DataMapHolder.initialise("context_id");
+        DataMapHolder.get()
+                .topic("stream-company-charges")
+                .partition(1)
+                .offset(2L)
+                .companyNumber("01203396");
+
+        assertThat(DataMapHolder.getLogMap()).isEqualTo(new DataMap.Builder()
+                .requestId("context_id")
+                .topic("stream-company-charges")
+                .partition(1)
+                .offset(2L)
+                .companyNumber("01203396")
+                .build()
+                .getLogMap());
+        assertThat(DataMapHolder.getRequestId()).isEqualTo("context_id");
+    }
+
+    @Test
+    void When_statusSet_Expect_NumericStatusInLogMap() {
+        DataMapHolder.initialise("context_id");
+
+        DataMapHolder.get().status(503);
+
+        assertThat(DataMapHolder.getLogMap()).containsEntry("status", 503);
+    }
+
+    @Test
+    void When_getLogMap_Expect_UnmodifiableMap() {
+        DataMapHolder.initialise("context_id");
+        Map<String, Object> logMap = DataMapHolder.getLogMap();
+        LogContext captured = DataMapHolder.capture();
+
+        assertThatThrownBy(() -> logMap.put("company_number", "01203396"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> captured.getLogMap().remove("request_id"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThat(DataMapHolder.getLogMap()).containsEntry("request_id", "context_id")
+                .doesNotContainKey("company_number");
+    }
+
+    @Test
+    void When_getLogMapWithoutChanges_Expect_MapBuiltOnce() {
+        DataMapHolder.initialise("context_id");
+
+        Map<String, Object> first = DataMapHolder.getLogMap();
+
+        assertThat(DataMapHolder.getLogMap()).isSameAs(first);
+        DataMapHolder.initialise("context_id");
+        assertThat(DataMapHolder.getLogMap()).isSameAs(first);
+    }
+
+    @Test
+    void When_contextChanges_Expect_NewMapAndEarlierMapUnchanged() {
+        DataMapHolder.initialise("context_id");
+        Map<String, Object> before = DataMapHolder.getLogMap();
+
+        DataMapHolder.get().companyNumber("01203396");
+
+        assertThat(DataMapHolder.getLogMap()).containsEntry("company_number", "01203396");
+        assertThat(before).doesNotContainKey("company_number");
+    }
+
+    @Test
+    void When_clear_Expect_ContextReset() {
+        DataMapHolder.initialise("context_id");
+        DataMapHolder.get().companyNumber("01203396");
+
+        DataMapHolder.clear();
+
+        assertThat(DataMapHolder.getRequestId()).isEqualTo("uninitialised");
+        assertThat(DataMapHolder.getLogMap()).doesNotContainKey("company_number");
+    }
+
+    @Test
+    void When_capture_Expect_CopyIndependentOfCurrentContext() {
+        DataMapHolder.initialise("context_id");
+        DataMapHolder.get().topic("stream-company-charges");
+
+        LogContext captured = DataMapHolder.capture().companyNumber("01203396");
+        DataMapHolder.get().offset(3L);
+
+        assertThat(captured.getLogMap()).containsEntry("request_id", "context_id")
+                .containsEntry("topic", "stream-company-charges")
+                .containsEntry("company_number", "01203396")
+                .doesNotContainKey("offset");
+        assertThat(DataMapHolder.getLogMap()).doesNotContainKey("company_number");
+    }
+
+    @Test
+    void When_callWith_Expect_CapturedContextThenPreviousContextRestored() {
+        DataMapHolder.initialise("context_id");
+        LogContext captured = DataMapHolder.capture().companyNumber("01203396");
+        DataMapHolder.initialise("other_context_id");
+
+        String companyNumber = DataMapHolder.callWith(captured, () -> {
+            DataMapHolder.get().status(503);
+            return DataMapHolder.get().getCompanyNumber();
+        });
+
+        assertThat(companyNumber).isEqualTo("01203396");
+        assertThat(captured.getLogMap()).containsEntry("status", 503);
+        assertThat(DataMapHolder.getRequestId()).isEqualTo("other_context_id");
+        assertThat(DataMapHolder.getLogMap()).doesNotContainKeys("company_number", "status");
+    }
+
+    @Test
+    void When_callWithFails_Expect_PreviousContextRestored() {
+        DataMapHolder.initialise("context_id");
+        LogContext captured = DataMapHolder.capture().requestId("other_context_id");
+
+        assertThatThrownBy(() -> DataMapHolder.callWith(captured, () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(DataMapHolder.getRequestId()).isEqualTo("context_id");
+    }
+
+    @Test
+    void When_propagateToAnotherThread_Expect_ContextFollowsWorkWithoutLeaking() throws Exception {
+        DataMapHolder.initialise("context_id");
+        Supplier<String> work = DataMapHolder.propagate("01203396",
+                () -> DataMapHolder.getRequestId() + " " + DataMapHolder.get().getCompanyNumber());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThat(executor.submit(work::get).get(5, TimeUnit.SECONDS))
+                    .isEqualTo("context_id 01203396");
+            assertThat(executor.submit(DataMapHolder::getRequestId).get(5, TimeUnit.SECONDS))
+                    .isEqualTo(LogContext.UNINITIALISED);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(DataMapHolder.get().getCompanyNumber()).isNull();
+    }
+
+    @Test
+    @Tag("perf")
+    void When_processingMessages_Expect_FewerBytesAllocatedThanRebuildingMaps() {
+        ThreadMXBean threadMxBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long rebuilding = 0;
+        long reusing = 0;
+        for (int run = 0; run < 2; run++) {
+            long start = threadMxBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MESSAGES; i++) {
+                rebuildingMaps(i);
+            }
+            rebuilding = threadMxBean.getCurrentThreadAllocatedBytes() - start;
+
+            start = threadMxBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MESSAGES; i++) {
+                reusingContext(i);
+            }
+            reusing = threadMxBean.getCurrentThreadAllocatedBytes() - start;
+        }
+
+        assertThat(reusing).isLessThan(rebuilding / 2);
+    }
+
+    /**
+     * The log context use of a recalculated record, as before: the listener aspect sets the
+     * record fields and logs on receipt, the router sets the company number, the debouncer,
+     * executor and client each read the request id, and the aspect logs on completion. Every
+     * read built a new map from the builder.
+     */
+    private static void rebuildingMaps(int offset) {
+        DataMap.Builder builder = new DataMap.Builder().requestId("uninitialised");
+        builder.requestId("context_id");
+        builder.topic("stream-company-charges").partition(0).offset((long) offset);
+        builder.build().getLogMap();
+        builder.companyNumber("01203396");
+        builder.build().getLogMap().get("request_id");
+        builder.build().getLogMap().get("request_id");
+        builder.build().getLogMap().get("request_id");
+        builder.build().getLogMap();
+    }
+
+    /**
+     * The same log context use through the reusable context.
+     */
+    private static void reusingContext(int offset) {
+        DataMapHolder.initialise("context_id");
+        DataMapHolder.get().topic("stream-company-charges").partition(0).offset((long) offset);
+        DataMapHolder.getLogMap();
+        DataMapHolder.get().companyNumber("01203396");
+        DataMapHolder.getRequestId();
+        DataMapHolder.getRequestId();
+        DataMapHolder.getRequestId();
+        DataMapHolder.getLogMap();
+        DataMapHolder.clear();
+    }
+}
@@ -0,0 +1,126 @@
+package uk.gov.companieshouse.company.metrics.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.stream.EventRecord;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+class StructuredLoggingKafkaListenerInterceptorTest {
+
+    private static final String TOPIC = "stream-company-charges";
+
+    @SuppressWarnings("unchecked")
+    private final Consumer<String, ResourceChangedData> consumer = mock(Consumer.class);
+    private final StructuredLoggingKafkaListenerInterceptor interceptor =
+            new StructuredLoggingKafkaListenerInterceptor();
+
+    @AfterEach
+    void tearDown() {
+        DataMapHolder.clear();
+    }
+
+    @Test
+    @DisplayName("Intercepting a record sets up the log context from the consumer record")
+    void When_interceptRecord_Expect_LogContextFromConsumerRecord() {
+        // given
+        ConsumerRecord<String, ResourceChangedData> consumerRecord =
+                new ConsumerRecord<>(TOPIC, 2, 42L, "key", delta("context_id"));
+
+        // when
+        ConsumerRecord<String, ResourceChangedData> actual =
+                interceptor.intercept(consumerRecord, consumer);
+
+        // then
+        assertThat(actual).isSameAs(consumerRecord);
+        assertThat(DataMapHolder.getLogMap()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "request_id", "context_id",
+                "topic", TOPIC,
+                "partition", 2,
+                "offset", 42L));
+    }
+
+    @Test
+    @DisplayName("A record that could not be deserialised is given a new request id")
+    void When_interceptRecordWithoutValue_Expect_NewRequestId() {
+        // given
+        ConsumerRecord<String, ResourceChangedData> consumerRecord =
+                new ConsumerRecord<>(TOPIC, 0, 1L, "key", null);
+
+        // when
+        interceptor.intercept(consumerRecord, consumer);
+
+        // then
+        assertThat(DataMapHolder.getRequestId())
+                .isNotEqualTo(LogContext.UNINITIALISED)
+                .isNotNull();
+        assertThat(DataMapHolder.getLogMap()).containsEntry("offset", 1L);
+    }
+
+    @Test
+    @DisplayName("The log context is cleared once a record has been processed")
+    void When_afterRecord_Expect_LogContextCleared() {
+        // given
+        ConsumerRecord<String, ResourceChangedData> consumerRecord =
+                new ConsumerRecord<>(TOPIC, 2, 42L, "key", delta("context_id"));
+        interceptor.intercept(consumerRecord, consumer);
+        interceptor.failure(consumerRecord, new IllegalStateException("failed"), consumer);
+
+        // when
+        interceptor.afterRecord(consumerRecord, consumer);
+
+        // then
+        assertThat(DataMapHolder.getLogMap())
+                .containsExactlyEntriesOf(Map.of("request_id", LogContext.UNINITIALISED));
+    }
+
+    @Test
+    @DisplayName("A batch is given its own request id and the context is cleared afterwards")
+    void When_interceptBatch_Expect_RequestIdThenClearedOnSuccess() {
+        // given
+        ConsumerRecords<String, ResourceChangedData> consumerRecords = new ConsumerRecords<>(
+                Map.of(new TopicPartition(TOPIC, 0), List.of(
+                        new ConsumerRecord<>(TOPIC, 0, 1L, "key", delta("context_id")))));
+
+        // when
+        ConsumerRecords<String, ResourceChangedData> actual =
+                interceptor.intercept(consumerRecords, consumer);
+
+        // then
+        assertThat(actual).isSameAs(consumerRecords);
+        assertThat(DataMapHolder.getRequestId()).isNotEqualTo(LogContext.UNINITIALISED);
+        assertThat(DataMapHolder.getLogMap()).doesNotContainKey("topic");
+
+        interceptor.success(consumerRecords, consumer);
+        assertThat(DataMapHolder.getRequestId()).isEqualTo(LogContext.UNINITIALISED);
+    }
+
+    @Test
+    @DisplayName("The log context is cleared when a batch fails")
+    void When_batchFails_Expect_LogContextCleared() {
+        // given
+        ConsumerRecords<String, ResourceChangedData> consumerRecords = ConsumerRecords.empty();
+        interceptor.intercept(consumerRecords, consumer);
+
+        // when
+        interceptor.failure(consumerRecords, new IllegalStateException("failed"), consumer);
+
+        // then
+        assertThat(DataMapHolder.getRequestId()).isEqualTo(LogContext.UNINITIALISED);
+    }
+
+    private static ResourceChangedData delta(String contextId) {
+        return new ResourceChangedData("company-charges", "/company/01203396/charges",
+                contextId, "resource_id", "{}",
+                new EventRecord("published_at", "changed", null));
+    }
+}
@@ -0,0 +1,170 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+import uk.gov.companieshouse.company.metrics.service.ChargesClient;
+import uk.gov.companieshouse.company.metrics.service.CompanyNumberExtractor;
+import uk.gov.companieshouse.company.metrics.service.CompanyNumberValidator;
+import uk.gov.companieshouse.company.metrics.service.MetricsClientFactory;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.company.metrics.type.EventType;
+import uk.gov.companieshouse.stream.EventRecord;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+@ExtendWith(MockitoExtension.class)
+class BatchMetricsRouterTest {
+
+    private static final String TOPIC = "stream-company-charges";
+    private static final DeltaType DELTA_TYPE = DeltaType.CHARGES;
+
+    @Mock
+    private MetricsClientFactory factory;
+
+    @Mock
+    private ChargesClient chargesClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BatchMetricsRouter router;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        router = new BatchMetricsRouter(new CompanyNumberExtractor(),
+                new CompanyNumberValidator(meterRegistry, true), factory, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Route should post one recalculation per company and report the POSTs saved")
+    void routeCollapsesDuplicateCompanies() {
+        // given
+        when(factory.getMetricsClient(any(DeltaType.class), any(EventType.class))).thenReturn(chargesClient);
+        List<ConsumerRecord<String, ResourceChangedData>> records = List.of(
+                consumerRecord(0, "01203396", "changed"),
+                consumerRecord(1, "OC305127", "changed"),
+                consumerRecord(2, "01203396", "deleted"),
+                consumerRecord(3, "01203396", "changed"));
+
+        // when
+        router.route(records, DELTA_TYPE);
+
+        // then
+        verify(chargesClient).postMetrics("01203396", TOPIC + "-0-3",
+                "/company/01203396/charges/3");
+        verify(chargesClient).postMetrics("OC305127", TOPIC + "-0-1",
+                "/company/OC305127/charges/1");
+        assertThat(meterRegistry.counter("company.metrics.batch.records",
+                "delta_type", DELTA_TYPE.getValue()).count()).isEqualTo(4.0);
+        assertThat(meterRegistry.counter("company.metrics.batch.posts.saved",
+                "delta_type", DELTA_TYPE.getValue()).count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Route should fail the batch at the first record covered by a failed recalculation")
+    void routeFailsAtFirstRecordOfFailedRecalculation() {
+        // given
+        when(factory.getMetricsClient(any(DeltaType.class), any(EventType.class))).thenReturn(chargesClient);
+        doThrow(RetryableErrorException.class)
+                .when(chargesClient).postMetrics(any(), any(), any());
+        List<ConsumerRecord<String, ResourceChangedData>> records = List.of(
+                consumerRecord(0, "01203396", "changed"),
+                consumerRecord(1, "01203396", "changed"));
+
+        // when
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> router.route(records, DELTA_TYPE));
+
+        // then
+        assertThat(exception.getRecord()).isSameAs(records.getFirst());
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class);
+    }
+
+    @Test
+    @DisplayName("Route should fail the batch with a non retryable error for an undeserialisable record")
+    void routeFailsForUndeserialisableRecord() {
+        // given
+        List<ConsumerRecord<String, ResourceChangedData>> records = List.of(
+                new ConsumerRecord<>(TOPIC, 0, 0L, "key", null));
+
+        // when
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> router.route(records, DELTA_TYPE));
+
+        // then
+        assertThat(exception.getCause()).isInstanceOf(NonRetryableErrorException.class);
+        verifyNoInteractions(factory);
+    }
+
+    @Test
+    @DisplayName("Route should post earlier recalculations before failing on an invalid resource uri")
+    void routePostsEarlierRecalculationsBeforeInvalidRecord() {
+        // given
+        when(factory.getMetricsClient(any(DeltaType.class), any(EventType.class))).thenReturn(chargesClient);
+        ResourceChangedData invalid = new ResourceChangedData("kind", "company-charges",
+                "context_id", "resource_id", "{}", new EventRecord("published_at", "changed", null));
+        List<ConsumerRecord<String, ResourceChangedData>> records = List.of(
+                consumerRecord(0, "01203396", "changed"),
+                new ConsumerRecord<>(TOPIC, 0, 1L, "key", invalid),
+                consumerRecord(2, "OC305127", "changed"));
+
+        // when
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> router.route(records, DELTA_TYPE));
+
+        // then
+        assertThat(exception.getRecord()).isSameAs(records.get(1));
+        verify(chargesClient).postMetrics("01203396", TOPIC + "-0-0",
+                "/company/01203396/charges/0");
+        verify(chargesClient, never()).postMetrics("OC305127", TOPIC + "-0-2",
+                "/company/OC305127/charges/2");
+    }
+
+    @Test
+    @DisplayName("Route should fail a record with an unknown company number prefix without posting it")
+    void routeFailsForUnknownPrefix() {
+        // given
+        when(factory.getMetricsClient(any(DeltaType.class), any(EventType.class))).thenReturn(chargesClient);
+        List<ConsumerRecord<String, ResourceChangedData>> records = List.of(
+                consumerRecord(0, "01203396", "changed"),
+                consumerRecord(1, "XX305127", "changed"));
+
+        // when
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> router.route(records, DELTA_TYPE));
+
+        // then
+        assertThat(exception.getRecord()).isSameAs(records.get(1));
+        assertThat(exception.getCause()).isInstanceOf(NonRetryableErrorException.class);
+        verify(chargesClient, never()).postMetrics(eq("XX305127"), any(), any());
+        assertThat(meterRegistry.counter("company.metrics.company.number.invalid",
+                "prefix", "unknown").count()).isEqualTo(1.0);
+    }
+
+    private static ConsumerRecord<String, ResourceChangedData> consumerRecord(long offset,
+            String companyNumber, String eventType) {
+        ResourceChangedData payload = new ResourceChangedData("kind",
+                String.format("/company/%s/charges/%d", companyNumber, offset), "context_id",
+                "resource_id", "{}", new EventRecord("published_at", eventType, null));
+        return new ConsumerRecord<>(TOPIC, 0, offset, companyNumber, payload);
+    }
+}
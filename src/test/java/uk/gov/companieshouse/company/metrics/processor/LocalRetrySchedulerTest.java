@@ -0,0 +1,224 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+
+class LocalRetrySchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RetryBudget retryBudget = new RetryBudget(false, 20, 10, 10_000L, meterRegistry);
+
+    private LocalRetryScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        DataMapHolder.clear();
+    }
+
+    @Test
+    @DisplayName("Retry should only start the recalculation when local retries are disabled")
+    void retryStartsOnlyWhenDisabled() {
+        // given
+        scheduler = new LocalRetryScheduler(false, 3, 10L, 100L, 1L, retryBudget,
+                meterRegistry);
+        AtomicInteger starts = new AtomicInteger();
+
+        // when
+        CompletableFuture<Void> future = scheduler.retry(() -> {
+            starts.incrementAndGet();
+            return CompletableFuture.failedFuture(new RetryableErrorException("failed"));
+        });
+
+        // then
+        assertThat(future).isCompletedExceptionally();
+        assertThat(starts.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Retry should complete once a local retry succeeds, under the request's context")
+    void retryRecoversLocally() throws Exception {
+        // given
+        scheduler = new LocalRetryScheduler(true, 3, 10L, 100L, 1L, retryBudget,
+                meterRegistry);
+        DataMapHolder.initialise("context_id");
+        List<String> requestIds = new CopyOnWriteArrayList<>();
+
+        // when
+        CompletableFuture<Void> future = scheduler.retry(failing(2, requestIds));
+        DataMapHolder.clear();
+
+        // then
+        future.get(5, TimeUnit.SECONDS);
+        assertThat(requestIds).containsExactly("context_id", "context_id", "context_id");
+        assertThat(meterRegistry.counter("company.metrics.local.retry.scheduled").count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.counter("company.metrics.local.retry.recovered").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Retry should wait the delay set by the failure rather than its own backoff")
+    void retryWaitsDelaySetByFailure() throws Exception {
+        // given
+        scheduler = new LocalRetryScheduler(true, 3, 5L, 10L, 1L, retryBudget, meterRegistry);
+        AtomicInteger starts = new AtomicInteger();
+        long start = System.nanoTime();
+
+        // when
+        CompletableFuture<Void> future = scheduler.retry(() -> starts.incrementAndGet() == 1
+                ? CompletableFuture.failedFuture(new RetryableErrorException("throttled",
+                        new RuntimeException(), 200L))
+                : CompletableFuture.completedFuture(null));
+
+        // then
+        future.get(5, TimeUnit.SECONDS);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .isGreaterThanOrEqualTo(200L);
+        assertThat(starts.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Retry should stay incomplete while a local retry is pending")
+    void retryIncompleteWhilePending() throws Exception {
+        // given
+        scheduler = new LocalRetryScheduler(true, 3, 200L, 200L, 1L, retryBudget,
+                meterRegistry);
+
+        // when
+        CompletableFuture<Void> future = scheduler.retry(failing(1, new CopyOnWriteArrayList<>()));
+
+        // then
+        assertThat(future).isNotDone();
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Retry should fail with the last failure once the local attempts are used up")
+    void retryFailsWhenExhausted() {
+        // given
+        scheduler = new LocalRetryScheduler(true, 2, 5L, 10L, 1L, retryBudget,
+                meterRegistry);
+        AtomicInteger starts = new AtomicInteger();
+
+        // when
+        CompletableFuture<Void> future = scheduler.retry(() -> {
+            throw new RetryableErrorException("failed " + starts.incrementAndGet());
+        });
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class)
+                .hasMessage("failed 3");
+        assertThat(meterRegistry.counter("company.metrics.local.retry.exhausted").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Retry should fail without retrying locally once the retry budget is spent")
+    void retryFailsWhenOverBudget() {
+        // given
+        RetryBudget spent = new RetryBudget(true, 0, 0, 10_000L, meterRegistry, () -> 0L);
+        scheduler = new LocalRetryScheduler(true, 3, 5L, 10L, 1L, spent, meterRegistry);
+        AtomicInteger starts = new AtomicInteger();
+
+        // when
+        CompletableFuture<Void> future = scheduler.retry(() -> {
+            starts.incrementAndGet();
+            return CompletableFuture.failedFuture(new RetryableErrorException("failed"));
+        });
+
+        // then
+        assertThat(future).isCompletedExceptionally();
+        assertThat(starts.get()).isEqualTo(1);
+        assertThat(meterRegistry.counter("company.metrics.retry.budget.rejected").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Retry should not retry non-retryable failures")
+    void retryDoesNotRetryNonRetryable() {
+        // given
+        scheduler = new LocalRetryScheduler(true, 3, 5L, 10L, 1L, retryBudget,
+                meterRegistry);
+        AtomicInteger starts = new AtomicInteger();
+
+        // when
+        CompletableFuture<Void> future = scheduler.retry(() -> {
+            starts.incrementAndGet();
+            return CompletableFuture.failedFuture(new NonRetryableErrorException("invalid"));
+        });
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(NonRetryableErrorException.class);
+        assertThat(starts.get()).isEqualTo(1);
+        assertThrows(NonRetryableErrorException.class, () -> scheduler.retry(() -> {
+            throw new NonRetryableErrorException("invalid");
+        }));
+    }
+
+    @Test
+    @DisplayName("Retry should fail pending retries on shutdown so they reach the retry topic")
+    void shutdownFailsPendingRetries() {
+        // given
+        scheduler = new LocalRetryScheduler(true, 3, 60_000L, 60_000L, 1L, retryBudget,
+                meterRegistry);
+        CompletableFuture<Void> future = scheduler.retry(() ->
+                CompletableFuture.failedFuture(new RetryableErrorException("failed")));
+
+        // when
+        scheduler.shutdown();
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class);
+    }
+
+    @Test
+    @DisplayName("Backoff should double from the initial delay up to the maximum, with jitter")
+    void backoffIsExponentialWithJitter() {
+        // given
+        scheduler = new LocalRetryScheduler(false, 10, 100L, 1000L, 1L, retryBudget,
+                meterRegistry);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            // then
+            assertThat(scheduler.backoff(1)).isBetween(50L, 100L);
+            assertThat(scheduler.backoff(3)).isBetween(200L, 400L);
+            assertThat(scheduler.backoff(5)).isBetween(500L, 1000L);
+            assertThat(scheduler.backoff(100)).isBetween(500L, 1000L);
+        }
+    }
+
+    private static Supplier<CompletableFuture<Void>> failing(int failures,
+                                                             List<String> requestIds) {
+        AtomicInteger starts = new AtomicInteger();
+        return () -> {
+            requestIds.add(DataMapHolder.getRequestId());
+            if (starts.incrementAndGet() <= failures) {
+                return CompletableFuture.failedFuture(new RetryableErrorException("failed"));
+            }
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+}
@@ -1,19 +1,34 @@
 package uk.gov.companieshouse.company.metrics.processor;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.function.Executable;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
 import uk.gov.companieshouse.company.metrics.service.ChargesClient;
 import uk.gov.companieshouse.company.metrics.service.CompanyNumberExtractable;
+import uk.gov.companieshouse.company.metrics.service.CompanyNumberValidator;
+import uk.gov.companieshouse.company.metrics.service.MetricsApiBackoff;
 import uk.gov.companieshouse.company.metrics.service.MetricsClientFactory;
-import uk.gov.companieshouse.company.metrics.type.ResourceChange;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.company.metrics.type.EventType;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
 import uk.gov.companieshouse.stream.EventRecord;
 import uk.gov.companieshouse.stream.ResourceChangedData;
 
@@ -31,8 +46,8 @@ class MetricsRouterTest {
 
     private MetricsRouter router;
 
-    @Mock
-    private ResourceChange message;
+    private MetricsApiBackoff metricsApiBackoff =
+            new MetricsApiBackoff(false, 1000L, 30000L, 300000L, 250L, 10000L, 1000L, new SimpleMeterRegistry());
 
     @Mock
     private ResourceChangedData data;
@@ -42,22 +57,32 @@ class MetricsRouterTest {
 
     @BeforeEach
     void setup() {
-        router = new MetricsRouter(extractor, factory);
+        router = router(new RetryBudget(false, 20, 10, 10_000L, new SimpleMeterRegistry()));
+    }
+
+    private MetricsRouter router(RetryBudget retryBudget) {
+        return new MetricsRouter(extractor,
+                new CompanyNumberValidator(new SimpleMeterRegistry(), true), factory,
+                new RecalculationDebouncer(0L, 0L, 1, false, false, null, null, metricsApiBackoff,
+                        new RecalculationExecutor(0, 1, false, false, new SimpleMeterRegistry()),
+                        new SimpleMeterRegistry()),
+                new LocalRetryScheduler(false, 0, 0L, 0L, 10L, retryBudget,
+                        new SimpleMeterRegistry()),
+                retryBudget, metricsApiBackoff);
     }
 
     @Test
     @DisplayName("Route should successfully route changed events to the recalculate charges client service")
     void routeChangedCharges() {
         // given
-        when(message.getData()).thenReturn(data);
         when(data.getEvent()).thenReturn(event);
         when(event.getType()).thenReturn("changed");
         when(data.getResourceUri()).thenReturn("/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
         when(extractor.extractCompanyNumber(any())).thenReturn("01203396");
-        when(factory.getMetricsClient(any(), any())).thenReturn(chargesClient);
+        when(factory.getMetricsClient(any(DeltaType.class), any(EventType.class))).thenReturn(chargesClient);
 
         // when
-        router.route(message, "deltaType", "updatedBy");
+        router.route(data, DeltaType.CHARGES, "updatedBy", false);
 
         // then
         verify(extractor).extractCompanyNumber("/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
@@ -68,18 +93,81 @@ class MetricsRouterTest {
     @DisplayName("Route should successfully route changed events to the recalculate charges client service")
     void routeDeletedCharges() {
         // given
-        when(message.getData()).thenReturn(data);
         when(data.getEvent()).thenReturn(event);
         when(event.getType()).thenReturn("deleted");
         when(data.getResourceUri()).thenReturn("/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
         when(extractor.extractCompanyNumber(any())).thenReturn("01203396");
-        when(factory.getMetricsClient(any(), any())).thenReturn(chargesClient);
+        when(factory.getMetricsClient(any(DeltaType.class), any(EventType.class))).thenReturn(chargesClient);
 
         // when
-        router.route(message, "deltaType", "updatedBy");
+        router.route(data, DeltaType.CHARGES, "updatedBy", false);
 
         // then
         verify(extractor).extractCompanyNumber("/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
         verify(chargesClient).postMetrics("01203396", "updatedBy", "/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
     }
+
+    @Test
+    @DisplayName("Route should record first attempts against the retry budget")
+    void routeRecordsFirstAttempts() {
+        // given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        router = router(new RetryBudget(true, 20, 10, 10_000L, meterRegistry, () -> 0L));
+        when(data.getEvent()).thenReturn(event);
+        when(event.getType()).thenReturn("changed");
+        when(data.getResourceUri()).thenReturn("/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
+        when(extractor.extractCompanyNumber(any())).thenReturn("01203396");
+        when(factory.getMetricsClient(any(DeltaType.class), any(EventType.class))).thenReturn(chargesClient);
+
+        // when
+        router.route(data, DeltaType.CHARGES, "updatedBy", false);
+
+        // then
+        verify(chargesClient).postMetrics("01203396", "updatedBy", "/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
+        assertThat(meterRegistry.counter("company.metrics.retry.budget.requests").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Route should defer a retry to the next retry topic once the retry budget is spent")
+    void routeDefersRetryOverBudget() {
+        // given
+        router = router(new RetryBudget(true, 0, 0, 10_000L, new SimpleMeterRegistry(), () -> 0L));
+        when(data.getEvent()).thenReturn(event);
+        when(event.getType()).thenReturn("changed");
+        when(data.getResourceUri()).thenReturn("/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
+        when(extractor.extractCompanyNumber(any())).thenReturn("01203396");
+
+        // when
+        Executable actual = () -> router.route(data, DeltaType.CHARGES, "updatedBy", true);
+
+        // then
+        assertThrows(RetryableErrorException.class, actual);
+        verifyNoInteractions(factory);
+    }
+
+    @Test
+    @DisplayName("Route should defer a first attempt while its type of metrics is throttled without blocking")
+    void routeDefersFirstAttemptWhileThrottled() throws Exception {
+        // given
+        metricsApiBackoff = new MetricsApiBackoff(true, 1000L, 30000L, 300000L, 250L, 10000L, 200L, new SimpleMeterRegistry());
+        router = router(new RetryBudget(false, 20, 10, 10_000L, new SimpleMeterRegistry()));
+        metricsApiBackoff.throttled(EnumSet.of(MetricsType.MORTGAGE), "5");
+        when(data.getEvent()).thenReturn(event);
+        when(event.getType()).thenReturn("changed");
+        when(data.getResourceUri()).thenReturn("/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
+        when(extractor.extractCompanyNumber(any())).thenReturn("01203396");
+        when(factory.getMetricsClient(any(DeltaType.class), any(EventType.class))).thenReturn(chargesClient);
+        when(chargesClient.getMetricsType()).thenReturn(Optional.of(MetricsType.MORTGAGE));
+        long start = System.nanoTime();
+
+        // when
+        CompletableFuture<Void> recalculation = router.route(data, DeltaType.CHARGES, "updatedBy", false);
+
+        // then
+        assertThat(recalculation).isNotDone();
+        verify(chargesClient, never()).postMetrics(any(), any(), any());
+        recalculation.get(5, TimeUnit.SECONDS);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(150L);
+        verify(chargesClient).postMetrics("01203396", "updatedBy", "/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg");
+    }
 }
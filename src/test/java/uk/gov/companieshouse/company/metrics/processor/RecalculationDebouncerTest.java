@@ -0,0 +1,294 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+import uk.gov.companieshouse.company.metrics.service.AsyncMetricsClient;
+import uk.gov.companieshouse.company.metrics.service.ChargesClient;
+import uk.gov.companieshouse.company.metrics.service.MergedMetricsClient;
+import uk.gov.companieshouse.company.metrics.service.MetricsApiBackoff;
+import uk.gov.companieshouse.company.metrics.service.NullMetricsClient;
+import uk.gov.companieshouse.company.metrics.service.PscsClient;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+
+@ExtendWith(MockitoExtension.class)
+class RecalculationDebouncerTest {
+
+    private static final String COMPANY_NUMBER = "01203396";
+    private static final String RESOURCE_URI = "/company/01203396/charges/MYdKM_YnzAmJ8JtSgVXr61n1bgg";
+
+    @Mock
+    private ChargesClient chargesClient;
+
+    @Mock
+    private PscsClient pscsClient;
+
+    @Mock
+    private MergedMetricsClient mergedClient;
+
+    @Mock
+    private AsyncMetricsClient asyncClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RecalculationExecutor executor = new RecalculationExecutor(0, 1, false, false, meterRegistry);
+
+    private MetricsApiBackoff metricsApiBackoff =
+            new MetricsApiBackoff(false, 1000L, 30000L, 300000L, 250L, 10000L, 1000L, meterRegistry);
+
+    private RecalculationDebouncer debouncer;
+
+    @AfterEach
+    void tearDown() {
+        debouncer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Submit should post immediately when the quiet window is zero")
+    void submitPostsImmediatelyWhenDisabled() {
+        // given
+        debouncer = new RecalculationDebouncer(0L, 0L, 1, false, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+
+        // when
+        CompletableFuture<Void> future = debouncer.submit(COMPANY_NUMBER, chargesClient,
+                "updatedBy", RESOURCE_URI);
+
+        // then
+        assertThat(future).isCompleted();
+        verify(chargesClient).postMetrics(COMPANY_NUMBER, "updatedBy", RESOURCE_URI);
+    }
+
+    @Test
+    @DisplayName("Submit should propagate a failed post immediately when the quiet window is zero")
+    void submitThrowsImmediatelyWhenDisabled() {
+        // given
+        debouncer = new RecalculationDebouncer(0L, 0L, 1, false, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+        doThrow(RetryableErrorException.class).when(chargesClient).postMetrics(any(), any(), any());
+
+        // when then
+        assertThrows(RetryableErrorException.class, () -> debouncer.submit(COMPANY_NUMBER,
+                chargesClient, "updatedBy", RESOURCE_URI));
+    }
+
+    @Test
+    @DisplayName("Submit should post once on the trailing edge with the latest request")
+    void submitCoalescesRequestsWithinQuietWindow() throws Exception {
+        // given
+        debouncer = new RecalculationDebouncer(200L, 10000L, 1, false, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+
+        // when
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int offset = 0; offset < 5; offset++) {
+            futures.add(debouncer.submit(COMPANY_NUMBER, chargesClient,
+                    "stream-company-charges-0-" + offset, RESOURCE_URI));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        verify(chargesClient).postMetrics(COMPANY_NUMBER, "stream-company-charges-0-4",
+                RESOURCE_URI);
+        verify(chargesClient, never()).postMetrics(COMPANY_NUMBER, "stream-company-charges-0-0",
+                RESOURCE_URI);
+        assertThat(meterRegistry.counter("company.metrics.debounce.submitted").count())
+                .isEqualTo(5.0);
+        assertThat(meterRegistry.counter("company.metrics.debounce.posted").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Submit should not coalesce requests for different metrics clients")
+    void submitKeepsClientsApart() throws Exception {
+        // given
+        debouncer = new RecalculationDebouncer(50L, 10000L, 1, false, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+
+        // when
+        CompletableFuture.allOf(
+                debouncer.submit(COMPANY_NUMBER, chargesClient, "charges", RESOURCE_URI),
+                debouncer.submit(COMPANY_NUMBER, pscsClient, "pscs", RESOURCE_URI))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        verify(chargesClient).postMetrics(COMPANY_NUMBER, "charges", RESOURCE_URI);
+        verify(pscsClient).postMetrics(COMPANY_NUMBER, "pscs", RESOURCE_URI);
+    }
+
+    @Test
+    @DisplayName("Submit should post by the maximum delay while requests keep arriving")
+    void submitPostsByMaximumDelay() throws Exception {
+        // given
+        debouncer = new RecalculationDebouncer(100L, 300L, 1, false, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+        CompletableFuture<Void> first = debouncer.submit(COMPANY_NUMBER, chargesClient,
+                "first", RESOURCE_URI);
+
+        // when
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1000L);
+        while (!first.isDone() && System.nanoTime() < deadline) {
+            debouncer.submit(COMPANY_NUMBER, chargesClient, "latest", RESOURCE_URI);
+            Thread.sleep(20L);
+        }
+
+        // then
+        assertThat(first).isCompleted();
+        verify(chargesClient, timeout(1000L).atLeastOnce()).postMetrics(COMPANY_NUMBER, "latest",
+                RESOURCE_URI);
+    }
+
+    @Test
+    @DisplayName("Submit should fail every request covered by a failed post")
+    void submitFailsAllCoveredRequests() {
+        // given
+        debouncer = new RecalculationDebouncer(50L, 10000L, 1, false, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+        doThrow(RetryableErrorException.class).when(chargesClient).postMetrics(any(), any(), any());
+
+        // when
+        CompletableFuture<Void> first = debouncer.submit(COMPANY_NUMBER, chargesClient,
+                "first", RESOURCE_URI);
+        CompletableFuture<Void> second = debouncer.submit(COMPANY_NUMBER, chargesClient,
+                "second", RESOURCE_URI);
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> second.get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class);
+        assertThat(first).isCompletedExceptionally();
+        verify(chargesClient, times(1)).postMetrics(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Submit should merge requests for different metrics types into a single post")
+    void submitMergesMetricsTypes() throws Exception {
+        // given
+        debouncer = new RecalculationDebouncer(50L, 10000L, 1, true, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+        when(chargesClient.getMetricsType()).thenReturn(Optional.of(MetricsType.MORTGAGE));
+        when(pscsClient.getMetricsType()).thenReturn(Optional.of(MetricsType.PSC));
+
+        // when
+        CompletableFuture.allOf(
+                debouncer.submit(COMPANY_NUMBER, chargesClient, "charges", RESOURCE_URI),
+                debouncer.submit(COMPANY_NUMBER, pscsClient, "pscs", RESOURCE_URI))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        verify(mergedClient).postMetrics(COMPANY_NUMBER, "pscs",
+                EnumSet.of(MetricsType.MORTGAGE, MetricsType.PSC));
+        verify(chargesClient, never()).postMetrics(any(), any(), any());
+        verify(pscsClient, never()).postMetrics(any(), any(), any());
+        assertThat(meterRegistry.counter("company.metrics.debounce.merged").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("A merged post should reset the backoff of every type of metrics it covered")
+    void submitMergedResetsBackoffOfEveryType() throws Exception {
+        // given
+        metricsApiBackoff = new MetricsApiBackoff(true, 1000L, 30000L, 300000L, 250L, 10000L, 1000L,
+                meterRegistry);
+        debouncer = new RecalculationDebouncer(50L, 10000L, 1, true, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+        when(chargesClient.getMetricsType()).thenReturn(Optional.of(MetricsType.MORTGAGE));
+        when(pscsClient.getMetricsType()).thenReturn(Optional.of(MetricsType.PSC));
+        for (int i = 0; i < 5; i++) {
+            metricsApiBackoff.throttled(EnumSet.of(MetricsType.MORTGAGE, MetricsType.PSC), null);
+        }
+
+        // when
+        CompletableFuture.allOf(
+                debouncer.submit(COMPANY_NUMBER, chargesClient, "charges", RESOURCE_URI),
+                debouncer.submit(COMPANY_NUMBER, pscsClient, "pscs", RESOURCE_URI))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(metricsApiBackoff.throttled(EnumSet.of(MetricsType.MORTGAGE), null).getAsLong())
+                .isBetween(500L, 1000L);
+        assertThat(metricsApiBackoff.throttled(EnumSet.of(MetricsType.PSC), null).getAsLong())
+                .isBetween(500L, 1000L);
+    }
+
+    @Test
+    @DisplayName("Submit should post with the original client when merged requests share a type")
+    void submitPostsSingleMetricsTypeWithOriginalClient() throws Exception {
+        // given
+        debouncer = new RecalculationDebouncer(50L, 10000L, 1, true, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+        when(chargesClient.getMetricsType()).thenReturn(Optional.of(MetricsType.MORTGAGE));
+
+        // when
+        CompletableFuture.allOf(
+                debouncer.submit(COMPANY_NUMBER, chargesClient, "first", RESOURCE_URI),
+                debouncer.submit(COMPANY_NUMBER, chargesClient, "second", RESOURCE_URI))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        verify(chargesClient).postMetrics(COMPANY_NUMBER, "second", RESOURCE_URI);
+        verifyNoInteractions(mergedClient);
+    }
+
+    @Test
+    @DisplayName("Submit should not merge requests for a client without a metrics type")
+    void submitKeepsUntypedClientsApart() throws Exception {
+        // given
+        debouncer = new RecalculationDebouncer(50L, 10000L, 1, true, false, mergedClient, null, metricsApiBackoff, executor, meterRegistry);
+        NullMetricsClient nullMetricsClient = new NullMetricsClient();
+        when(chargesClient.getMetricsType()).thenReturn(Optional.of(MetricsType.MORTGAGE));
+
+        // when
+        CompletableFuture<Void> charges = debouncer.submit(COMPANY_NUMBER, chargesClient,
+                "charges", RESOURCE_URI);
+        CompletableFuture<Void> invalid = debouncer.submit(COMPANY_NUMBER, nullMetricsClient,
+                "invalid", RESOURCE_URI);
+        charges.get(5, TimeUnit.SECONDS);
+
+        // then
+        verify(chargesClient).postMetrics(COMPANY_NUMBER, "charges", RESOURCE_URI);
+        assertThrows(ExecutionException.class, () -> invalid.get(5, TimeUnit.SECONDS));
+        verifyNoInteractions(mergedClient);
+    }
+
+    @Test
+    @DisplayName("Submit should send through the asynchronous client when asynchronous HTTP is enabled")
+    void submitSendsAsynchronously() throws Exception {
+        // given
+        CompletableFuture<Void> response = new CompletableFuture<>();
+        RecalculationExecutor asyncExecutor = new RecalculationExecutor(0, 10, false, true, meterRegistry);
+        debouncer = new RecalculationDebouncer(0L, 0L, 1, false, true, mergedClient, asyncClient,
+                metricsApiBackoff, asyncExecutor, meterRegistry);
+        when(chargesClient.getMetricsType()).thenReturn(Optional.of(MetricsType.MORTGAGE));
+        when(asyncClient.postMetrics(COMPANY_NUMBER, "updatedBy", EnumSet.of(MetricsType.MORTGAGE)))
+                .thenReturn(response);
+
+        // when
+        CompletableFuture<Void> future = debouncer.submit(COMPANY_NUMBER, chargesClient,
+                "updatedBy", RESOURCE_URI);
+
+        // then
+        verify(asyncClient, timeout(5000L)).postMetrics(COMPANY_NUMBER, "updatedBy",
+                EnumSet.of(MetricsType.MORTGAGE));
+        assertThat(future).isNotDone();
+        response.complete(null);
+        future.get(5, TimeUnit.SECONDS);
+        verify(chargesClient, never()).postMetrics(any(), any(), any());
+        asyncExecutor.shutdown();
+    }
+}
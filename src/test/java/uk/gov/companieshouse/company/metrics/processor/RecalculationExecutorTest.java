@@ -0,0 +1,299 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+
+class RecalculationExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RecalculationExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        DataMapHolder.clear();
+    }
+
+    @Test
+    @DisplayName("Execute should run on the caller's thread when parallel processing is disabled")
+    void executeRunsInlineWhenDisabled() {
+        // given
+        executor = new RecalculationExecutor(0, 1, false, false, meterRegistry);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        // when
+        CompletableFuture<Void> future = executor.execute("01203396",
+                completed(() -> thread.set(Thread.currentThread())));
+
+        // then
+        assertThat(future).isCompleted();
+        assertThat(thread.get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    @DisplayName("Execute should keep recalculations for the same company in submission order")
+    void executeKeepsCompanyOrder() throws Exception {
+        // given
+        executor = new RecalculationExecutor(8, 100, false, false, meterRegistry);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 50; i++) {
+            final int sequence = i;
+            futures.add(executor.execute("01203396", completed(() -> {
+                sleep(1L);
+                order.add(sequence);
+            })));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .get(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(order).isSorted().hasSize(50);
+    }
+
+    @Test
+    @DisplayName("Execute should run recalculations for different companies concurrently")
+    void executeRunsCompaniesConcurrently() throws Exception {
+        // given
+        executor = new RecalculationExecutor(2, 100, false, false, meterRegistry);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable awaitOther = () -> {
+            bothStarted.countDown();
+            try {
+                assertThat(bothStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // when
+        CompletableFuture<Void> first = executor.execute("01203396", completed(awaitOther));
+        CompletableFuture<Void> second = executor.execute("OC305127", completed(awaitOther));
+
+        // then
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+        assertThat(bothStarted.getCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Execute should run the next recalculation for a company after one fails")
+    void executeContinuesAfterFailure() throws Exception {
+        // given
+        executor = new RecalculationExecutor(2, 100, false, false, meterRegistry);
+
+        // when
+        CompletableFuture<Void> failed = executor.execute("01203396", () -> {
+            throw new RetryableErrorException("failed");
+        });
+        CompletableFuture<Void> next = executor.execute("01203396", completed(() -> { }));
+
+        // then
+        next.get(5, TimeUnit.SECONDS);
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> failed.get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class);
+    }
+
+    @Test
+    @DisplayName("Execute should run recalculations under the submitting request's context")
+    void executePropagatesRequestContext() throws Exception {
+        // given
+        executor = new RecalculationExecutor(1, 100, false, false, meterRegistry);
+        DataMapHolder.initialise("context_id");
+        AtomicReference<String> requestId = new AtomicReference<>();
+
+        // when
+        executor.execute("01203396",
+                        completed(() -> requestId.set(DataMapHolder.getRequestId())))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(requestId.get()).isEqualTo("context_id");
+    }
+
+    @Test
+    @DisplayName("Execute should run recalculations under the company number without leaking it")
+    void executePropagatesCompanyNumberWithoutLeaking() throws Exception {
+        // given
+        executor = new RecalculationExecutor(1, 100, false, false, meterRegistry);
+        DataMapHolder.initialise("context_id");
+        AtomicReference<String> companyNumber = new AtomicReference<>();
+        AtomicReference<String> nextCompanyNumber = new AtomicReference<>("unset");
+
+        // when
+        executor.execute("01203396", completed(() ->
+                        companyNumber.set(DataMapHolder.get().getCompanyNumber())))
+                .get(5, TimeUnit.SECONDS);
+        DataMapHolder.clear();
+        executor.execute("SC123456", completed(() -> { }))
+                .thenRun(() -> nextCompanyNumber.set(DataMapHolder.get().getCompanyNumber()))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(companyNumber.get()).isEqualTo("01203396");
+        assertThat(nextCompanyNumber.get()).isNull();
+        assertThat(DataMapHolder.get().getCompanyNumber()).isNull();
+    }
+
+    @Test
+    @DisplayName("Execute should run recalculations on virtual threads in virtual thread mode")
+    void executeRunsOnVirtualThreads() throws Exception {
+        // given
+        executor = new RecalculationExecutor(0, 100, true, false, meterRegistry);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        // when
+        executor.execute("01203396", completed(() -> thread.set(Thread.currentThread())))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(thread.get().isVirtual()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Execute should keep company order and bound in flight recalculations on virtual threads")
+    void executeBoundsVirtualThreads() throws Exception {
+        // given
+        executor = new RecalculationExecutor(0, 4, true, false, meterRegistry);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 40; i++) {
+            final String entry = String.format("%02d", i);
+            futures.add(executor.execute(i % 2 == 0 ? "01203396" : "OC305127", completed(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(2L);
+                order.add(entry);
+                running.decrementAndGet();
+            })));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .get(10, TimeUnit.SECONDS);
+
+        // then
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(4);
+        assertThat(order.stream().filter(entry -> Integer.parseInt(entry) % 2 == 0).toList())
+                .isSorted();
+        assertThat(order.stream().filter(entry -> Integer.parseInt(entry) % 2 == 1).toList())
+                .isSorted();
+    }
+
+    @Test
+    @DisplayName("Execute should release in flight capacity once recalculations complete")
+    void executeReleasesInFlightCapacity() throws Exception {
+        // given
+        executor = new RecalculationExecutor(1, 1, false, false, meterRegistry);
+
+        // when
+        executor.execute("01203396", completed(() -> { })).get(5, TimeUnit.SECONDS);
+        executor.execute("OC305127", completed(() -> { })).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(meterRegistry.get("company.metrics.parallel.in.flight").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Execute should keep company order for recalculations that complete asynchronously")
+    void executeChainsAsynchronousRecalculations() throws Exception {
+        // given
+        executor = new RecalculationExecutor(0, 100, false, true, meterRegistry);
+        CompletableFuture<Void> response = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        // when
+        CompletableFuture<Void> first = executor.execute("01203396", () -> {
+            started.incrementAndGet();
+            return response;
+        });
+        CompletableFuture<Void> second = executor.execute("01203396", completed(started::incrementAndGet));
+        sleep(100L);
+
+        // then
+        assertThat(started.get()).isEqualTo(1);
+        assertThat(second).isNotDone();
+        response.complete(null);
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        assertThat(started.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Execute should pause the listeners rather than block once the in flight bound is reached")
+    void executePausesListenersWhenBoundReached() throws Exception {
+        // given
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        executor = new RecalculationExecutor(1, 1, false, false, meterRegistry);
+        executor.addListenerContainer(container);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+
+        // when
+        CompletableFuture<Void> first = executor.execute("01203396", completed(() -> {
+            started.incrementAndGet();
+            await(release);
+        }));
+        CompletableFuture<Void> second = executor.execute("OC305127",
+                completed(started::incrementAndGet));
+
+        // then
+        assertThat(second).isNotDone();
+        verify(container).pause();
+        verify(container, never()).resume();
+        release.countDown();
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        assertThat(started.get()).isEqualTo(2);
+        verify(container).resume();
+        assertThat(meterRegistry.get("company.metrics.parallel.in.flight").gauge().value())
+                .isZero();
+    }
+
+    private static Supplier<CompletableFuture<Void>> completed(Runnable recalculation) {
+        return () -> {
+            recalculation.run();
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
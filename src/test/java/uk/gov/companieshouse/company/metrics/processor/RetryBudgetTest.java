@@ -0,0 +1,108 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    @Test
+    @DisplayName("Try retry should always allow retries when the budget is disabled")
+    void tryRetryAllowsWhenDisabled() {
+        // given
+        RetryBudget budget = new RetryBudget(false, 0, 0, 10_000L, meterRegistry, nanoTime::get);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            // then
+            assertThat(budget.tryRetry()).isTrue();
+        }
+        assertThat(meterRegistry.counter("company.metrics.retry.budget.retries").count())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Try retry should allow the minimum retries per second without any requests")
+    void tryRetryAllowsMinimumRetries() {
+        // given
+        RetryBudget budget = new RetryBudget(true, 20, 2, 5_000L, meterRegistry, nanoTime::get);
+
+        // when
+        int allowed = retries(budget, 20);
+
+        // then
+        assertThat(allowed).isEqualTo(10);
+        assertThat(meterRegistry.counter("company.metrics.retry.budget.retries").count())
+                .isEqualTo(10.0);
+        assertThat(meterRegistry.counter("company.metrics.retry.budget.rejected").count())
+                .isEqualTo(10.0);
+    }
+
+    @Test
+    @DisplayName("Try retry should allow the configured percentage of requests")
+    void tryRetryAllowsPercentOfRequests() {
+        // given
+        RetryBudget budget = new RetryBudget(true, 20, 0, 10_000L, meterRegistry, nanoTime::get);
+
+        // when
+        for (int i = 0; i < 50; i++) {
+            budget.recordRequest();
+        }
+
+        // then
+        assertThat(budget.balance()).isEqualTo(10.0);
+        assertThat(retries(budget, 20)).isEqualTo(10);
+        assertThat(budget.balance()).isZero();
+        assertThat(meterRegistry.counter("company.metrics.retry.budget.requests").count())
+                .isEqualTo(50.0);
+        assertThat(meterRegistry.get("company.metrics.retry.budget.balance").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("Requests and retries should expire once they leave the window")
+    void requestsAndRetriesExpire() {
+        // given
+        RetryBudget budget = new RetryBudget(true, 50, 0, 3_000L, meterRegistry, nanoTime::get);
+        for (int i = 0; i < 4; i++) {
+            budget.recordRequest();
+        }
+        assertThat(retries(budget, 2)).isEqualTo(2);
+
+        // when
+        advanceSeconds(2);
+        budget.recordRequest();
+        budget.recordRequest();
+
+        // then
+        assertThat(retries(budget, 2)).isEqualTo(1);
+        advanceSeconds(1);
+        assertThat(budget.balance()).isZero();
+        budget.recordRequest();
+        budget.recordRequest();
+        assertThat(budget.balance()).isEqualTo(1.0);
+        advanceSeconds(3);
+        assertThat(budget.balance()).isZero();
+    }
+
+    private static int retries(RetryBudget budget, int attempts) {
+        int allowed = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (budget.tryRetry()) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    private void advanceSeconds(long seconds) {
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.companieshouse.company.metrics.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RetryTimerWheelTest {
+
+    private RetryTimerWheel wheel;
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    @DisplayName("Scheduled tasks should run once their delay has passed, never early")
+    void scheduledTasksRunAfterDelay() throws Exception {
+        // given
+        wheel = new RetryTimerWheel(1L, 8, Runnable::run);
+        CountDownLatch ran = new CountDownLatch(3);
+        ConcurrentHashMap<Long, Long> elapsed = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+
+        // when
+        for (long delay : new long[] {5L, 20L, 40L}) {
+            wheel.schedule(() -> {
+                elapsed.put(delay, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                ran.countDown();
+            }, delay);
+        }
+
+        // then
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        elapsed.forEach((delay, actual) -> assertThat(actual).isGreaterThanOrEqualTo(delay));
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("Stop should return the tasks that had not run")
+    void stopReturnsPendingTasks() {
+        // given
+        wheel = new RetryTimerWheel(1L, 8, Runnable::run);
+        Runnable task = () -> { };
+        wheel.schedule(task, 60_000L);
+
+        // when
+        List<Runnable> unprocessed = wheel.stop();
+
+        // then
+        assertThat(unprocessed).containsExactly(task);
+        assertThat(wheel.pending()).isZero();
+        assertThat(wheel.isStopped()).isTrue();
+    }
+}
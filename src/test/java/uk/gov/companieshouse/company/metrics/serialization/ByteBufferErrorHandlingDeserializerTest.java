@@ -0,0 +1,83 @@
+package uk.gov.companieshouse.company.metrics.serialization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.kafka.support.serializer.SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER;
+
+import java.nio.ByteBuffer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.stream.EventRecord;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+class ByteBufferErrorHandlingDeserializerTest {
+
+    private final ByteBufferErrorHandlingDeserializer<ResourceChangedData> deserializer =
+            new ByteBufferErrorHandlingDeserializer<>(new ResourceChangedDataDeserializer());
+
+    @Test
+    void When_deserializeBuffer_Expect_RecordDecodedFromBufferPosition() {
+        ResourceChangedData resourceChangedData = resourceChangedData();
+        ByteBuffer data = fetchBuffer(new ResourceChangedDataSerializer()
+                .serialize("", resourceChangedData));
+        Headers headers = new RecordHeaders();
+
+        ResourceChangedData deserializedObject = deserializer.deserialize("", headers, data);
+
+        assertThat(deserializedObject).isEqualTo(resourceChangedData);
+        assertThat(data.position()).isEqualTo(3);
+        assertThat(headers.lastHeader(VALUE_DESERIALIZER_EXCEPTION_HEADER)).isNull();
+    }
+
+    @Test
+    void When_deserializeBufferFails_Expect_ExceptionHeaderWithOriginalBytes() {
+        byte[] invalid = "Invalid message".getBytes();
+        Headers headers = new RecordHeaders();
+
+        ResourceChangedData deserializedObject =
+                deserializer.deserialize("", headers, fetchBuffer(invalid));
+
+        assertThat(deserializedObject).isNull();
+        DeserializationException exception = SerializationUtils.byteArrayToDeserializationException(
+                null, headers.lastHeader(VALUE_DESERIALIZER_EXCEPTION_HEADER));
+        assertThat(exception.getData()).isEqualTo(invalid);
+        assertThat(exception.getCause()).isInstanceOf(NonRetryableErrorException.class);
+    }
+
+    @Test
+    void When_deserializeProjectedBuffer_Expect_SourceIsRecordBytesOnly() {
+        ResourceChangedData resourceChangedData = resourceChangedData();
+        byte[] encoded = new ResourceChangedDataSerializer().serialize("", resourceChangedData);
+        ByteBufferErrorHandlingDeserializer<ResourceChangedData> projection =
+                new ByteBufferErrorHandlingDeserializer<>(
+                        new ResourceChangedDataProjectionDeserializer());
+
+        ResourceChangedData deserializedObject =
+                projection.deserialize("", new RecordHeaders(), fetchBuffer(encoded));
+
+        assertThat(deserializedObject.getResourceUri()).isEqualTo("/company/01203396/charges");
+        assertThat(((ProjectedResourceChangedData) deserializedObject).getSource())
+                .isEqualTo(encoded);
+    }
+
+    /**
+     * Places data in the middle of a larger buffer, as values are in a fetched record batch.
+     */
+    private static ByteBuffer fetchBuffer(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocate(data.length + 8);
+        buffer.put(new byte[] {1, 2, 3}).put(data).put(new byte[] {4, 5, 6, 7, 8});
+        buffer.position(3).limit(3 + data.length);
+        return buffer;
+    }
+
+    private static ResourceChangedData resourceChangedData() {
+        EventRecord eventRecord = new EventRecord();
+        eventRecord.setPublishedAt("2022010351");
+        eventRecord.setType("changed");
+        return new ResourceChangedData("company-charges", "/company/01203396/charges",
+                "context_id", "resource_id", "{}", eventRecord);
+    }
+}
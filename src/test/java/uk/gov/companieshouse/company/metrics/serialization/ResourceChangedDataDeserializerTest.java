@@ -3,7 +3,13 @@ package uk.gov.companieshouse.company.metrics.serialization;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.reflect.ReflectDatumReader;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.stream.EventRecord;
@@ -31,6 +37,67 @@ class ResourceChangedDataDeserializerTest {
         assertThat(deserializedObject).isEqualTo(resourceChangedData);
     }
 
+    @Test
+    void When_deserializeConsecutiveRecords_Expect_EarlierRecordUnchanged() {
+        ResourceChangedData first = resourceChangedData("/company/01203396/charges");
+        ResourceChangedData second = resourceChangedData("/company/OC305127/charges");
+
+        ResourceChangedData firstDeserialized = deserializer.deserialize("", encodedData(first));
+        ResourceChangedData secondDeserialized = deserializer.deserialize("", encodedData(second));
+
+        assertThat(firstDeserialized).isEqualTo(first).isNotSameAs(secondDeserialized);
+        assertThat(secondDeserialized).isEqualTo(second);
+    }
+
+    @Test
+    void When_deserializeRetainingSource_Expect_RecordForwardedAsOriginalBytes() {
+        ResourceChangedData resourceChangedData = resourceChangedData("/company/01203396/charges");
+        byte[] data = encodedData(resourceChangedData);
+        ResourceChangedDataDeserializer retainingDeserializer =
+                new ResourceChangedDataDeserializer(true);
+
+        ResourceChangedData deserializedObject = retainingDeserializer.deserialize("", data);
+
+        assertThat(deserializedObject).isInstanceOf(SourcedResourceChangedData.class)
+                .usingRecursiveComparison().ignoringFields("source").isEqualTo(resourceChangedData);
+        assertThat(new ResourceChangedDataSerializer().serialize("", deserializedObject))
+                .isSameAs(data);
+    }
+
+    @Test
+    @Tag("perf")
+    void When_deserialize_Expect_FewerBytesAllocatedThanReflectiveReader() throws IOException {
+        byte[] data = encodedData(resourceChangedData("/company/01203396/charges"));
+        ThreadMXBean threadMxBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long reflective = 0;
+        long cached = 0;
+        for (int run = 0; run < 2; run++) {
+            long start = threadMxBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 1000; i++) {
+                new ReflectDatumReader<>(ResourceChangedData.class)
+                        .read(null, DecoderFactory.get().binaryDecoder(data, null));
+            }
+            reflective = threadMxBean.getCurrentThreadAllocatedBytes() - start;
+
+            start = threadMxBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 1000; i++) {
+                deserializer.deserialize("", data);
+            }
+            cached = threadMxBean.getCurrentThreadAllocatedBytes() - start;
+        }
+
+        assertThat(cached).isLessThan(reflective / 4);
+    }
+
+    private static ResourceChangedData resourceChangedData(String resourceUri) {
+        EventRecord eventRecord = new EventRecord();
+        eventRecord.setPublishedAt("2022010351");
+        eventRecord.setType("changed");
+        return new ResourceChangedData("company-charges", resourceUri, "context_id",
+                "resource_id", "{}", eventRecord);
+    }
+
     private byte[] encodedData(ResourceChangedData resourceChangedData){
         ResourceChangedDataSerializer serializer = new ResourceChangedDataSerializer();
         return serializer.serialize("", resourceChangedData);
@@ -0,0 +1,78 @@
+package uk.gov.companieshouse.company.metrics.serialization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.stream.EventRecord;
+import uk.gov.companieshouse.stream.ResourceChangedData;
+
+class ResourceChangedDataProjectionDeserializerTest {
+
+    private ResourceChangedDataProjectionDeserializer deserializer;
+
+    @BeforeEach
+    public void init() {
+        deserializer = new ResourceChangedDataProjectionDeserializer();
+    }
+
+    @Test
+    void When_deserialize_Expect_RoutingFieldsOnly() {
+        byte[] data = encodedData(resourceChangedData("/company/01203396/charges", "context_id"));
+
+        ResourceChangedData deserializedObject = deserializer.deserialize("", data);
+
+        assertThat(deserializedObject.getResourceUri()).isEqualTo("/company/01203396/charges");
+        assertThat(deserializedObject.getContextId()).isEqualTo("context_id");
+        assertThat(deserializedObject.getEvent().getType()).isEqualTo("changed");
+        assertThat(deserializedObject.getData()).isNull();
+        assertThat(deserializedObject.getResourceKind()).isNull();
+        assertThat(deserializedObject.getEvent().getPublishedAt()).isNull();
+    }
+
+    @Test
+    void When_deserializeConsecutiveRecords_Expect_EarlierRecordUnchanged() {
+        byte[] first = encodedData(resourceChangedData("/company/01203396/charges", "first"));
+        byte[] second = encodedData(resourceChangedData("/company/OC305127/charges", "second"));
+
+        ResourceChangedData firstDeserialized = deserializer.deserialize("", first);
+        deserializer.deserialize("", second);
+
+        assertThat(firstDeserialized.getResourceUri()).isEqualTo("/company/01203396/charges");
+        assertThat(firstDeserialized.getContextId()).isEqualTo("first");
+    }
+
+    @Test
+    void When_serializeProjectedData_Expect_OriginalRecord() {
+        ResourceChangedData resourceChangedData =
+                resourceChangedData("/company/01203396/charges", "context_id");
+        byte[] data = encodedData(resourceChangedData);
+
+        byte[] forwarded = new ResourceChangedDataSerializer()
+                .serialize("", deserializer.deserialize("", data));
+
+        assertThat(forwarded).isEqualTo(data);
+        assertThat(new ResourceChangedDataDeserializer().deserialize("", forwarded))
+                .isEqualTo(resourceChangedData);
+    }
+
+    @Test
+    void When_deserializeFails_throwsNonRetryableError() {
+        byte[] data = "Invalid message".getBytes();
+        assertThrows(NonRetryableErrorException.class, () -> deserializer.deserialize("", data));
+    }
+
+    private static ResourceChangedData resourceChangedData(String resourceUri, String contextId) {
+        EventRecord eventRecord = new EventRecord();
+        eventRecord.setPublishedAt("2022010351");
+        eventRecord.setType("changed");
+        return new ResourceChangedData("company-charges", resourceUri, contextId,
+                "resource_id", "{\"etag\":\"etag\"}", eventRecord);
+    }
+
+    private static byte[] encodedData(ResourceChangedData resourceChangedData) {
+        return new ResourceChangedDataSerializer().serialize("", resourceChangedData);
+    }
+}
@@ -5,11 +5,17 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.kafka.serialization.AvroSerializer;
 import uk.gov.companieshouse.stream.EventRecord;
 import uk.gov.companieshouse.stream.ResourceChangedData;
 
@@ -35,6 +41,34 @@ class ResourceChangedDataSerializerTest {
         assertThat(decodedData(result)).isEqualTo(resourceChangedData);
     }
 
+    @Test
+    void When_serializeConsecutiveRecords_Expect_SameBytesAsAvroSerializer() throws IOException {
+        AvroSerializer<ResourceChangedData> avroSerializer =
+                new AvroSerializer<>(new SpecificDatumWriter<>(), EncoderFactory.get());
+        List<ResourceChangedData> records = List.of(
+                resourceChangedData("x".repeat(70000), List.of("etag", "links")),
+                resourceChangedData("{}", null),
+                resourceChangedData("{\"etag\":\"etag\"}", List.of()),
+                resourceChangedData("x".repeat(5000), List.of("etag")));
+
+        for (ResourceChangedData resourceChangedData : records) {
+            assertThat(serializer.serialize("", resourceChangedData))
+                    .isEqualTo(avroSerializer.toBinary(resourceChangedData));
+        }
+    }
+
+    @Test
+    void When_serializeAfterFailure_Expect_SameBytesAsAvroSerializer() throws IOException {
+        ResourceChangedData invalid = resourceChangedData("{}", null);
+        invalid.setResourceId(null);
+        ResourceChangedData valid = resourceChangedData("{}", List.of("etag"));
+
+        assertThrows(NonRetryableErrorException.class, () -> serializer.serialize("", invalid));
+
+        assertThat(serializer.serialize("", valid)).isEqualTo(
+                new AvroSerializer<>(new SpecificDatumWriter<>(), EncoderFactory.get()).toBinary(valid));
+    }
+
     @Test
     void When_serialize_null_returns_null() {
         byte[] serialize = serializer.serialize("", null);
@@ -48,6 +82,15 @@ class ResourceChangedDataSerializerTest {
         assertThat(serialize).isEqualTo(byteExample);
     }
 
+    @Test
+    void When_serialize_receivesProjectedData_returnsSourceBytes() {
+        byte[] source = "Source bytes".getBytes();
+        ProjectedResourceChangedData projected = new ProjectedResourceChangedData(ByteBuffer.wrap(source),
+                "resource_uri", "context_id", "changed");
+        byte[] serialize = serializer.serialize("", projected);
+        assertThat(serialize).isSameAs(source);
+    }
+
     @Test
     void When_serializeFails_throwsNonRetryableError() {
         Object payload = mock(Object.class);
@@ -55,6 +98,15 @@ class ResourceChangedDataSerializerTest {
         assertThrows(NonRetryableErrorException.class, () -> serializer.serialize("", payload));
     }
 
+    private static ResourceChangedData resourceChangedData(String data, List<String> fieldsChanged) {
+        EventRecord eventRecord = new EventRecord();
+        eventRecord.setPublishedAt("2022010351");
+        eventRecord.setType("changed");
+        eventRecord.setFieldsChanged(fieldsChanged);
+        return new ResourceChangedData("company-charges", "/company/01203396/charges",
+                "context_id", "resource_id", data, eventRecord);
+    }
+
     private ResourceChangedData decodedData(byte[] resourceChangedData) {
         ResourceChangedDataDeserializer serializer = new ResourceChangedDataDeserializer();
         return serializer.deserialize("", resourceChangedData);
@@ -8,7 +8,6 @@ import static org.mockito.Mockito.when;
 import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpResponseException;
 import java.util.Collections;
-import java.util.function.Supplier;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -38,7 +37,7 @@ class AppointmentsClientTest {
     private static final boolean IS_REGISTERS = false;
 
     @Mock
-    private Supplier<InternalApiClient> internalApiClientSupplier;
+    private InternalApiClientPool internalApiClientPool;
 
     @Mock
     private HttpClient httpClient;
@@ -63,7 +62,7 @@ class AppointmentsClientTest {
 
     @BeforeEach
     void setup() {
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(appointmentsMetricsPostHandler);
         when(appointmentsMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -0,0 +1,243 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.api.error.ApiErrorResponseException;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+import uk.gov.companieshouse.company.metrics.logging.DataMapHolder;
+import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiRequestEncoder;
+import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiTransformer;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+
+class AsyncMetricsClientTest {
+
+    private static final String COMPANY_NUMBER = "01203396";
+    private static final String PATH = String.format("/company/%s/metrics/recalculate", COMPANY_NUMBER);
+    private static final String UPDATED_BY = "updatedBy";
+
+    private final AtomicReference<Integer> status = new AtomicReference<>(200);
+    private final AtomicReference<String> requestPath = new AtomicReference<>();
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+    private final AtomicReference<String> requestId = new AtomicReference<>();
+    private final AtomicReference<String> authorisation = new AtomicReference<>();
+    private final AtomicReference<String> retryAfter = new AtomicReference<>();
+    private final AtomicReference<String> responseBody = new AtomicReference<>();
+
+    private HttpServer server;
+
+    private AsyncMetricsClient client;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requestPath.set(exchange.getRequestURI().getPath());
+            requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            requestId.set(exchange.getRequestHeaders().getFirst("X-Request-Id"));
+            authorisation.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            if (retryAfter.get() != null) {
+                exchange.getResponseHeaders().set("Retry-After", retryAfter.get());
+            }
+            if (responseBody.get() != null) {
+                byte[] body = responseBody.get().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status.get(), body.length);
+                exchange.getResponseBody().write(body);
+            } else {
+                exchange.sendResponseHeaders(status.get(), -1);
+            }
+            exchange.close();
+        });
+        server.start();
+        client = client(String.format("http://localhost:%d", server.getAddress().getPort()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        DataMapHolder.clear();
+    }
+
+    @Test
+    void testUpsert() throws Exception {
+        // given
+        DataMapHolder.initialise("context_id");
+
+        // when
+        client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.MORTGAGE, MetricsType.PSC))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(requestPath.get()).isEqualTo(PATH);
+        assertThat(new ObjectMapper().readTree(requestBody.get())).isEqualTo(new ObjectMapper().readTree(
+                "{\"mortgage\":true,\"appointments\":false,\"persons_with_significant_control\":true,"
+                        + "\"registers\":false,\"internal_data\":{\"updated_by\":\"updatedBy\"}}"));
+        assertThat(requestId.get()).isEqualTo("context_id");
+        assertThat(authorisation.get()).isEqualTo("Basic YXBpS2V5Og==");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCallerContextKeptWhenResponseHandledOnCallerThread() throws Exception {
+        // given
+        HttpClient httpClient = mock(HttpClient.class);
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(200);
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+        client = new AsyncMetricsClient(httpClient,
+                new CompanyMetricsApiRequestEncoder(new ObjectMapper(), new CompanyMetricsApiTransformer()),
+                new MetricsApiResponseHandler(metricsApiBackoff(false)), "http://localhost", "apiKey", 5000L);
+        DataMapHolder.initialise("context_id");
+        DataMapHolder.get().offset(42L);
+
+        // when
+        client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.MORTGAGE))
+                .get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(DataMapHolder.getRequestId()).isEqualTo("context_id");
+        assertThat(DataMapHolder.getLogMap()).containsEntry("offset", 42L)
+                .doesNotContainKey("company_number");
+    }
+
+    @Test
+    void testFailNonRetryableIfBadRequestReturned() {
+        // given
+        status.set(400);
+
+        // when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.MORTGAGE))
+                        .get(5, TimeUnit.SECONDS));
+
+        // then
+        assertThat(exception.getCause()).isInstanceOf(NonRetryableErrorException.class);
+    }
+
+    @Test
+    void testFailRetryableIfServerErrorReturned() {
+        // given
+        status.set(503);
+
+        // when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.REGISTERS))
+                        .get(5, TimeUnit.SECONDS));
+
+        // then
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class);
+    }
+
+    @Test
+    void testKeepResponseBodyOutOfExceptionMessage() {
+        // given
+        status.set(503);
+        responseBody.set("{\"error\":\"internal detail\"}");
+
+        // when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.REGISTERS))
+                        .get(5, TimeUnit.SECONDS));
+
+        // then
+        assertThat(exception.getCause().getCause()).isInstanceOf(ApiErrorResponseException.class);
+        ApiErrorResponseException error = (ApiErrorResponseException) exception.getCause().getCause();
+        assertThat(error.getStatusCode()).isEqualTo(503);
+        assertThat(error.getStatusMessage()).isEqualTo("Service Unavailable");
+        assertThat(error.getContent()).isEqualTo("{\"error\":\"internal detail\"}");
+        assertThat(error.getMessage()).isEqualTo("503 Service Unavailable");
+    }
+
+    @Test
+    void testFailRetryableIfConnectionRefused() {
+        // given
+        server.stop(0);
+
+        // when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.APPOINTMENTS))
+                        .get(5, TimeUnit.SECONDS));
+
+        // then
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class);
+    }
+
+    @Test
+    void testFailRetryableAfterRetryAfterDelayIfThrottled() {
+        // given
+        client = client(String.format("http://localhost:%d", server.getAddress().getPort()), true);
+        status.set(429);
+        retryAfter.set("2");
+
+        // when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.MORTGAGE))
+                        .get(5, TimeUnit.SECONDS));
+
+        // then
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class);
+        assertThat(((RetryableErrorException) exception.getCause()).getRetryDelay()).hasValue(2000L);
+    }
+
+    @Test
+    void testFailRetryableAfterConnectionDelayIfConnectionRefused() {
+        // given
+        client = client(String.format("http://localhost:%d", server.getAddress().getPort()), true);
+        server.stop(0);
+
+        // when
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.APPOINTMENTS))
+                        .get(5, TimeUnit.SECONDS));
+
+        // then
+        assertThat(exception.getCause()).isInstanceOf(RetryableErrorException.class);
+        assertThat(((RetryableErrorException) exception.getCause()).getRetryDelay().getAsLong())
+                .isBetween(125L, 250L);
+    }
+
+    @Test
+    void testThrowNonRetryableIfUriInvalid() {
+        // given
+        AsyncMetricsClient invalidClient = client("http://localhost:1/ invalid");
+
+        // when then
+        assertThrows(NonRetryableErrorException.class,
+                () -> invalidClient.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.PSC)));
+    }
+
+    private static AsyncMetricsClient client(String apiUrl) {
+        return client(apiUrl, false);
+    }
+
+    private static AsyncMetricsClient client(String apiUrl, boolean adaptiveBackoff) {
+        return new AsyncMetricsClient(HttpClient.newHttpClient(),
+                new CompanyMetricsApiRequestEncoder(new ObjectMapper(), new CompanyMetricsApiTransformer()),
+                new MetricsApiResponseHandler(metricsApiBackoff(adaptiveBackoff)), apiUrl, "apiKey", 5000L);
+    }
+
+    private static MetricsApiBackoff metricsApiBackoff(boolean enabled) {
+        return new MetricsApiBackoff(enabled, 1000L, 30000L, 300000L, 250L, 10000L, 1000L, new SimpleMeterRegistry());
+    }
+}
@@ -21,7 +21,6 @@ import uk.gov.companieshouse.api.http.HttpClient;
 import uk.gov.companieshouse.api.model.ApiResponse;
 import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiTransformer;
 import java.util.Collections;
-import java.util.function.Supplier;
 
 @ExtendWith(MockitoExtension.class)
 class ChargesClientTest {
@@ -38,7 +37,7 @@ class ChargesClientTest {
     private static final boolean IS_REGISTERS = false;
 
     @Mock
-    private Supplier<InternalApiClient> internalApiClientSupplier;
+    private InternalApiClientPool internalApiClientPool;
 
     @Mock
     private InternalApiClient internalApiClient;
@@ -64,7 +63,7 @@ class ChargesClientTest {
     @Test
     void testUpsert() throws ApiErrorResponseException, URIValidationException {
         // given
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(chargesMetricsPostHandler);
         when(chargesMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -77,13 +76,14 @@ class ChargesClientTest {
         // then
         verify(chargesMetricsPostHandler).postCompanyMetrics(PATH, metricsApiTransformer.transform(UPDATED_BY, true, false, false, false));
         verify(privateCompanyMetricsUpsert).execute();
+        verify(internalApiClientPool).release(internalApiClient);
     }
 
     @Test
     void testThrowNonRetryableExceptionIfClientErrorReturned() throws ApiErrorResponseException, URIValidationException {
         // given
         ApiErrorResponseException apiErrorResponseException = new ApiErrorResponseException(new HttpResponseException.Builder(404, "Not found", new HttpHeaders()));
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(chargesMetricsPostHandler);
         when(chargesMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -96,13 +96,14 @@ class ChargesClientTest {
         verify(chargesMetricsPostHandler).postCompanyMetrics(PATH, metricsApiTransformer.transform(UPDATED_BY, true, false, false, false));
         verify(privateCompanyMetricsUpsert).execute();
         verify(metricsApiResponseHandler).handle(COMPANY_NUMBER, CHARGES_DELTA_TYPE, apiErrorResponseException);
+        verify(internalApiClientPool).release(internalApiClient);
     }
 
     @Test
     void testThrowRetryableExceptionIfServerErrorReturned() throws ApiErrorResponseException, URIValidationException {
         // given
         ApiErrorResponseException apiErrorResponseException = new ApiErrorResponseException(new HttpResponseException.Builder(500, "Internal server error", new HttpHeaders()));
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(chargesMetricsPostHandler);
         when(chargesMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -121,7 +122,7 @@ class ChargesClientTest {
     void testThrowNonRetryableExceptionIfBadRequestReturned() throws ApiErrorResponseException, URIValidationException {
         // given
         ApiErrorResponseException apiErrorResponseException = new ApiErrorResponseException(new HttpResponseException.Builder(400, "Internal server error", new HttpHeaders()));
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(chargesMetricsPostHandler);
         when(chargesMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -140,7 +141,7 @@ class ChargesClientTest {
     void testThrowRetryableExceptionIfIllegalArgumentExceptionIsCaught() throws ApiErrorResponseException, URIValidationException {
         // given
         IllegalArgumentException illegalArgumentException = new IllegalArgumentException("Internal server error");
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(chargesMetricsPostHandler);
         when(chargesMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -159,7 +160,7 @@ class ChargesClientTest {
     void testThrowNonRetryableExceptionIfComapnyNumberInvalid() throws ApiErrorResponseException, URIValidationException {
         // given
         URIValidationException uriValidationException = new URIValidationException("Invalid URI");
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(chargesMetricsPostHandler);
         when(chargesMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -1,11 +1,19 @@
 package uk.gov.companieshouse.company.metrics.service;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -15,6 +23,13 @@ import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorExceptio
 
 class CompanyNumberExtractorTest {
 
+    private static final Pattern EXTRACT_COMPANY_NUMBER_PATTERN =
+            Pattern.compile("(?<=company/)([a-zA-Z0-9]{6,10})(?=/.*)");
+    private static final List<String> URI_PARTS = List.of("company/", "company", "/", "-", "_",
+            "0", "9", "a", "z", "A", "Z", "OC", "SC305127", "01203396", "AB123456789", "\n",
+            "\u0663", "\u00e9", " ", "appointments", "charges", "persons-with-significant-control",
+            "company/OC305127/");
+
     private final CompanyNumberExtractor extractor = new CompanyNumberExtractor();
 
     @Test
@@ -28,6 +43,60 @@ class CompanyNumberExtractorTest {
         assertEquals("OC305127", actual);
     }
 
+    @Test
+    @DisplayName("The extractor should extract the same company number as the pattern for any uri")
+    void processMatchesPattern() {
+        // given
+        Random random = new Random(20221003L);
+
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder uri = new StringBuilder();
+            int parts = random.nextInt(12);
+            for (int part = 0; part < parts; part++) {
+                uri.append(URI_PARTS.get(random.nextInt(URI_PARTS.size())));
+            }
+
+            // when
+            String actual;
+            try {
+                actual = extractor.extractCompanyNumber(uri.toString());
+            } catch (NonRetryableErrorException ex) {
+                actual = ex.getMessage();
+            }
+
+            // then
+            assertEquals(extractWithPattern(uri.toString()), actual, uri.toString());
+        }
+    }
+
+    @Test
+    @Tag("perf")
+    @DisplayName("The extractor should allocate less than the pattern per uri")
+    void processAllocatesLessThanPattern() {
+        // given
+        String uri = "/company/OC305127/appointments/-0YatipCW4ZL295N9UVFo1TGyW8";
+        ThreadMXBean threadMxBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long pattern = 0;
+        long scanner = 0;
+        for (int run = 0; run < 2; run++) {
+            long start = threadMxBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                extractWithPattern(uri);
+            }
+            pattern = threadMxBean.getCurrentThreadAllocatedBytes() - start;
+
+            start = threadMxBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                extractor.extractCompanyNumber(uri);
+            }
+            scanner = threadMxBean.getCurrentThreadAllocatedBytes() - start;
+        }
+
+        // then
+        assertThat(scanner).isLessThan(pattern / 2);
+    }
+
     @ParameterizedTest(name = "{index}: {0}")
     @MethodSource("extractorFixtures")
     void processPatternDoesNotMatch(String displayName, String uri, String expected) {
@@ -41,6 +110,15 @@ class CompanyNumberExtractorTest {
         assertEquals(expected, exception.getMessage());
     }
 
+    private static String extractWithPattern(String uri) {
+        if (uri.isBlank()) {
+            return "Could not extract company number from empty or null resource uri";
+        }
+        Matcher matcher = EXTRACT_COMPANY_NUMBER_PATTERN.matcher(uri);
+        return matcher.find() ? matcher.group()
+                : String.format("Could not extract company number from resource URI: %s", uri);
+    }
+
     private static Stream<Arguments> extractorFixtures() {
         return Stream.of(
                 arguments("The extractor should throw a non retryable exception when it cannot extract a company number",
@@ -0,0 +1,115 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
+import uk.gov.companieshouse.company.metrics.type.CompanyKey;
+
+class CompanyNumberValidatorTest {
+
+    private static final String VALID_METRIC = "company.metrics.company.number.valid";
+    private static final String INVALID_METRIC = "company.metrics.company.number.invalid";
+
+    private SimpleMeterRegistry meterRegistry;
+    private CompanyNumberValidator validator;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        validator = new CompanyNumberValidator(meterRegistry, true);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"01203396,none", "12345678,none", "OC305127,OC", "SC123456,SC",
+            "NI000001,NI", "FC012345,FC", "R0000123,R0", "ZC000010,ZC", "OE000123,OE",
+            "FE000123,FE", "ES000123,ES", "IP12345R,IP", "IP00001C,IP", "SP00249R,SP",
+            "NP00127R,NP"})
+    @DisplayName("Validate should accept company numbers and count them against their prefix")
+    void validateAcceptsCompanyNumbers(String companyNumber, String prefix) {
+        // given
+        long companyKey = CompanyKey.encode(companyNumber);
+
+        // when
+        long validated = validator.validate(companyKey);
+
+        // then
+        assertThat(validated).isEqualTo(companyKey);
+        assertThat(validator.validate(companyNumber)).isEqualTo(companyNumber);
+        assertThat(meterRegistry.counter(VALID_METRIC, "prefix", prefix).count())
+                .isEqualTo(2.0);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"XX123456,unknown", "0120339,unknown", "012033967,unknown",
+            "1C123456,unknown", "OC30512A,OC", "0120339A,none", "SC12345X,SC", "OE12345R,OE",
+            "sc12345x,SC"})
+    @DisplayName("Validate should reject malformed company numbers and count them against their prefix")
+    void validateRejectsCompanyNumbers(String companyNumber, String prefix) {
+        // when
+        NonRetryableErrorException exception = assertThrows(NonRetryableErrorException.class,
+                () -> validator.validate(CompanyKey.encode(companyNumber)));
+
+        // then
+        assertThat(exception.getMessage()).isEqualTo("Invalid company number: " + companyNumber);
+        assertThat(meterRegistry.counter(INVALID_METRIC, "prefix", prefix).count())
+                .isEqualTo(1.0);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"oc305127,OC305127,OC", "Sc123456,SC123456,SC", "ip12345r,IP12345R,IP",
+            "sp00249R,SP00249R,SP"})
+    @DisplayName("Validate should match letters regardless of case and return the company number in upper case")
+    void validateNormalisesCase(String companyNumber, String expected, String prefix) {
+        // when
+        String validated = validator.validate(companyNumber);
+        long validatedKey = validator.validate(CompanyKey.encode(companyNumber));
+
+        // then
+        assertThat(validated).isEqualTo(expected);
+        assertThat(validatedKey).isEqualTo(CompanyKey.encode(expected));
+        assertThat(meterRegistry.counter(VALID_METRIC, "prefix", prefix).count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Validate should return the same company number when it is already in upper case")
+    void validateReturnsUpperCaseCompanyNumber() {
+        // given
+        String companyNumber = "OC305127";
+
+        // then
+        assertThat(validator.validate(companyNumber)).isSameAs(companyNumber);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "01203", "0120-396"})
+    @DisplayName("Validate should reject values that are not company numbers at all")
+    void validateRejectsValuesThatCannotBeKeys(String companyNumber) {
+        // then
+        assertThrows(NonRetryableErrorException.class, () -> validator.validate(companyNumber));
+        assertThat(meterRegistry.counter(INVALID_METRIC, "prefix", "unknown").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Validate should accept any company number when validation is disabled")
+    void validateAcceptsAllWhenDisabled() {
+        // given
+        CompanyNumberValidator disabled = new CompanyNumberValidator(meterRegistry, false);
+
+        // then
+        assertThat(disabled.validate("XX123456")).isEqualTo("XX123456");
+        assertThat(disabled.validate(CompanyKey.encode("0120339A")))
+                .isEqualTo(CompanyKey.encode("0120339A"));
+        assertThat(meterRegistry.counter(INVALID_METRIC, "prefix", "unknown").count())
+                .isZero();
+    }
+}
@@ -0,0 +1,108 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.api.InternalApiClient;
+
+class InternalApiClientPoolTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final InternalApiClientPool pool =
+            new InternalApiClientPool(() -> mock(InternalApiClient.class), 2, meterRegistry);
+
+    @Test
+    void testBorrowCreatesClientWhenPoolEmpty() {
+        // when
+        InternalApiClient client = pool.borrow();
+
+        // then
+        assertThat(client).isNotNull();
+        assertThat(meterRegistry.get("company.metrics.api.client.pool.misses").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("company.metrics.api.client.pool.hits").counter().count())
+                .isZero();
+    }
+
+    @Test
+    void testBorrowReusesReleasedClient() {
+        // given
+        InternalApiClient client = pool.borrow();
+        pool.release(client);
+
+        // when
+        InternalApiClient reused = pool.borrow();
+
+        // then
+        assertThat(reused).isSameAs(client);
+        assertThat(meterRegistry.get("company.metrics.api.client.pool.hits").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("company.metrics.api.client.pool.idle").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void testReleaseDiscardsClientWhenPoolFull() {
+        // given
+        InternalApiClient first = pool.borrow();
+        InternalApiClient second = pool.borrow();
+        InternalApiClient third = pool.borrow();
+
+        // when
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+
+        // then
+        assertThat(meterRegistry.get("company.metrics.api.client.pool.idle").gauge().value())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.get("company.metrics.api.client.pool.discarded").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void testClientIsNeverLeasedToTwoThreadsAtOnce() throws Exception {
+        // given
+        Set<InternalApiClient> leased = Collections.newSetFromMap(new IdentityHashMap<>());
+        AtomicBoolean shared = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    InternalApiClient client = pool.borrow();
+                    synchronized (leased) {
+                        if (!leased.add(client)) {
+                            shared.set(true);
+                        }
+                    }
+                    synchronized (leased) {
+                        leased.remove(client);
+                    }
+                    pool.release(client);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        assertThat(shared.get()).isFalse();
+    }
+}
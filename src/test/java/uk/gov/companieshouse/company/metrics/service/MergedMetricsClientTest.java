@@ -0,0 +1,114 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import java.util.Collections;
+import java.util.EnumSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.companieshouse.api.InternalApiClient;
+import uk.gov.companieshouse.api.error.ApiErrorResponseException;
+import uk.gov.companieshouse.api.handler.exception.URIValidationException;
+import uk.gov.companieshouse.api.handler.metrics.PrivateCompanyMetricsUpsertHandler;
+import uk.gov.companieshouse.api.handler.metrics.request.PrivateCompanyMetricsUpsert;
+import uk.gov.companieshouse.api.http.HttpClient;
+import uk.gov.companieshouse.api.metrics.MetricsRecalculateApi;
+import uk.gov.companieshouse.api.model.ApiResponse;
+import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiTransformer;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+
+@ExtendWith(MockitoExtension.class)
+class MergedMetricsClientTest {
+
+    private static final String COMPANY_NUMBER = "01203396";
+    private static final String PATH = String.format("/company/%s/metrics/recalculate", COMPANY_NUMBER);
+    private static final String UPDATED_BY = "updatedBy";
+
+    @Mock
+    private InternalApiClientPool internalApiClientPool;
+
+    @Mock
+    private InternalApiClient internalApiClient;
+
+    @Mock
+    private HttpClient httpClient;
+
+    @Mock
+    private PrivateCompanyMetricsUpsertHandler metricsPostHandler;
+
+    @Mock
+    private PrivateCompanyMetricsUpsert privateCompanyMetricsUpsert;
+
+    @Mock
+    private CompanyMetricsApiTransformer metricsApiTransformer;
+
+    @Mock
+    private MetricsApiResponseHandler metricsApiResponseHandler;
+
+    @Mock
+    private MetricsRecalculateApi metricsRecalculateApi;
+
+    @InjectMocks
+    private MergedMetricsClient client;
+
+    @Test
+    void testUpsertSetsFlagForEachMetricsType() throws ApiErrorResponseException, URIValidationException {
+        // given
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
+        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
+        when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(metricsPostHandler);
+        when(metricsApiTransformer.transform(UPDATED_BY, true, true, false, false)).thenReturn(metricsRecalculateApi);
+        when(metricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
+        when(privateCompanyMetricsUpsert.execute()).thenReturn(new ApiResponse<>(200, Collections.emptyMap()));
+
+        // when
+        client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.MORTGAGE, MetricsType.APPOINTMENTS));
+
+        // then
+        verify(metricsPostHandler).postCompanyMetrics(PATH, metricsRecalculateApi);
+        verify(privateCompanyMetricsUpsert).execute();
+    }
+
+    @Test
+    void testHandleErrorResponseForAllMetricsTypes() throws ApiErrorResponseException, URIValidationException {
+        // given
+        ApiErrorResponseException apiErrorResponseException = new ApiErrorResponseException(new HttpResponseException.Builder(503, "Service unavailable", new HttpHeaders()));
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
+        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
+        when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(metricsPostHandler);
+        when(metricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
+        when(privateCompanyMetricsUpsert.execute()).thenThrow(apiErrorResponseException);
+
+        // when
+        client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.PSC, MetricsType.REGISTERS));
+
+        // then
+        verify(metricsApiTransformer).transform(UPDATED_BY, false, false, true, true);
+        verify(metricsApiResponseHandler).handle(COMPANY_NUMBER, "pscs,registers", apiErrorResponseException);
+    }
+
+    @Test
+    void testHandleURIValidationException() throws ApiErrorResponseException, URIValidationException {
+        // given
+        URIValidationException uriValidationException = new URIValidationException("Invalid URI");
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
+        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
+        when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(metricsPostHandler);
+        when(metricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
+        when(privateCompanyMetricsUpsert.execute()).thenThrow(uriValidationException);
+
+        // when
+        client.postMetrics(COMPANY_NUMBER, UPDATED_BY, EnumSet.of(MetricsType.MORTGAGE, MetricsType.PSC));
+
+        // then
+        verify(metricsApiResponseHandler).handle(COMPANY_NUMBER, "charges,pscs", uriValidationException);
+    }
+}
@@ -0,0 +1,184 @@
+package uk.gov.companieshouse.company.metrics.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
+
+class MetricsApiBackoffTest {
+
+    private static final Set<MetricsType> CHARGES = EnumSet.of(MetricsType.MORTGAGE);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    @Test
+    @DisplayName("Backoff should set no delay and pause nothing when disabled")
+    void disabledSetsNoDelay() {
+        // given
+        MetricsApiBackoff backoff = backoff(false);
+
+        // when
+        // then
+        assertThat(backoff.throttled(CHARGES, "5")).isEmpty();
+        assertThat(backoff.connectionFailed(CHARGES)).isEmpty();
+        assertThat(backoff.dispatchPauseNanos(MetricsType.MORTGAGE)).isZero();
+    }
+
+    @Test
+    @DisplayName("Throttled should double the delay for each consecutive failure up to the maximum")
+    void throttledDelayIsExponential() {
+        // given
+        MetricsApiBackoff backoff = backoff(true);
+
+        // when
+        // then
+        assertThat(backoff.throttled(CHARGES, null).getAsLong()).isBetween(500L, 1000L);
+        assertThat(backoff.throttled(CHARGES, null).getAsLong()).isBetween(1000L, 2000L);
+        for (int i = 0; i < 10; i++) {
+            backoff.throttled(CHARGES, null);
+        }
+        assertThat(backoff.throttled(CHARGES, null).getAsLong()).isBetween(4000L, 8000L);
+        assertThat(meterRegistry.counter("company.metrics.api.backoff.throttled",
+                "delta_type", "charges").count()).isEqualTo(13.0);
+    }
+
+    @Test
+    @DisplayName("Throttled should wait no less than Retry-After asks")
+    void throttledHonoursRetryAfter() {
+        // given
+        MetricsApiBackoff backoff = backoff(true);
+
+        // when
+        // then
+        assertThat(backoff.throttled(CHARGES, "3")).hasValue(3000L);
+    }
+
+    @Test
+    @DisplayName("Throttled should wait as long as Retry-After asks beyond the maximum delay of the curve")
+    void throttledHonoursRetryAfterBeyondMaxDelay() {
+        // given
+        MetricsApiBackoff backoff = backoff(true);
+
+        // when
+        // then
+        assertThat(backoff.throttled(CHARGES, "60")).hasValue(60_000L);
+        assertThat(backoff.dispatchPauseNanos(MetricsType.MORTGAGE))
+                .isEqualTo(TimeUnit.SECONDS.toNanos(60L));
+    }
+
+    @Test
+    @DisplayName("Throttled should wait no longer than the maximum Retry-After however long it asks")
+    void throttledCapsRetryAfter() {
+        // given
+        MetricsApiBackoff backoff = backoff(true);
+
+        // when
+        // then
+        assertThat(backoff.throttled(CHARGES, "3600")).hasValue(120_000L);
+    }
+
+    @Test
+    @DisplayName("Connection failures should follow their own curve, apart from throttling")
+    void connectionFailuresHaveOwnCurve() {
+        // given
+        MetricsApiBackoff backoff = backoff(true);
+        for (int i = 0; i < 5; i++) {
+            backoff.throttled(CHARGES, null);
+        }
+
+        // when
+        // then
+        assertThat(backoff.connectionFailed(CHARGES).getAsLong()).isBetween(50L, 100L);
+        assertThat(backoff.connectionFailed(CHARGES).getAsLong()).isBetween(100L, 200L);
+        assertThat(meterRegistry.counter("company.metrics.api.backoff.connection",
+                "delta_type", "charges").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Succeeded should reset both curves for the type of metrics")
+    void succeededResetsCurves() {
+        // given
+        MetricsApiBackoff backoff = backoff(true);
+        for (int i = 0; i < 5; i++) {
+            backoff.throttled(CHARGES, null);
+            backoff.connectionFailed(CHARGES);
+        }
+
+        // when
+        backoff.succeeded(MetricsType.MORTGAGE);
+
+        // then
+        assertThat(backoff.throttled(CHARGES, null).getAsLong()).isBetween(500L, 1000L);
+        assertThat(backoff.connectionFailed(CHARGES).getAsLong()).isBetween(50L, 100L);
+    }
+
+    @Test
+    @DisplayName("A failure should pause dispatch for its own type of metrics until the delay passes")
+    void failurePausesDispatchForItsType() {
+        // given
+        MetricsApiBackoff backoff = backoff(true);
+
+        // when
+        backoff.throttled(CHARGES, "2");
+
+        // then
+        assertThat(backoff.dispatchPauseNanos(MetricsType.MORTGAGE))
+                .isEqualTo(TimeUnit.SECONDS.toNanos(2L));
+        assertThat(backoff.dispatchPauseNanos(MetricsType.PSC)).isZero();
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+        assertThat(backoff.dispatchPauseNanos(MetricsType.MORTGAGE))
+                .isEqualTo(TimeUnit.SECONDS.toNanos(1L));
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+        assertThat(backoff.dispatchPauseNanos(MetricsType.MORTGAGE)).isZero();
+    }
+
+    @Test
+    @DisplayName("Dispatch delay should be no longer than the maximum dispatch pause")
+    void dispatchDelayIsBounded() {
+        // given
+        MetricsApiBackoff backoff = new MetricsApiBackoff(true, 1000L, 8000L, 120_000L, 100L,
+                1000L, 50L, meterRegistry, nanoTime::get);
+        backoff.throttled(CHARGES, "5");
+
+        // when
+        // then
+        assertThat(backoff.dispatchDelayNanos(MetricsType.MORTGAGE))
+                .isEqualTo(TimeUnit.MILLISECONDS.toNanos(50L));
+        assertThat(backoff.dispatchDelayNanos(MetricsType.PSC)).isZero();
+        assertThat(meterRegistry.counter("company.metrics.api.backoff.dispatch.paused",
+                "delta_type", "charges").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Retry-After should be read as a number of seconds or as an HTTP date")
+    void retryAfterIsParsed() {
+        // given
+        String future = DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(120));
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(120));
+
+        // when
+        // then
+        assertThat(MetricsApiBackoff.retryAfterMillis("7")).isEqualTo(7000L);
+        assertThat(MetricsApiBackoff.retryAfterMillis(future)).isBetween(100_000L, 120_000L);
+        assertThat(MetricsApiBackoff.retryAfterMillis(past)).isZero();
+        assertThat(MetricsApiBackoff.retryAfterMillis("soon")).isZero();
+        assertThat(MetricsApiBackoff.retryAfterMillis(null)).isZero();
+    }
+
+    private MetricsApiBackoff backoff(boolean enabled) {
+        return new MetricsApiBackoff(enabled, 1000L, 8000L, 120_000L, 100L, 1000L, 1000L,
+                meterRegistry, nanoTime::get);
+    }
+}
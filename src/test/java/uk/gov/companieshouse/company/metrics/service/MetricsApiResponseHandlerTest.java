@@ -2,10 +2,16 @@ package uk.gov.companieshouse.company.metrics.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpResponseException;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.util.EnumSet;
+import java.util.OptionalLong;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.function.Executable;
@@ -16,6 +22,7 @@ import uk.gov.companieshouse.api.error.ApiErrorResponseException;
 import uk.gov.companieshouse.api.handler.exception.URIValidationException;
 import uk.gov.companieshouse.company.metrics.exception.NonRetryableErrorException;
 import uk.gov.companieshouse.company.metrics.exception.RetryableErrorException;
+import uk.gov.companieshouse.company.metrics.type.MetricsType;
 import java.util.Arrays;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +31,8 @@ class MetricsApiResponseHandlerTest {
     private static final String FAILED_MSG = "Failed recalculating %s for company %s";
     private static final String ERROR_MSG = "HTTP response code %s  when recalculating %s for company %s";
     private static final String API_INFO_RESPONSE_MSG = "Call to API failed, status code: %d. %s";
+    private static final String THROTTLED_MSG = "Call to API throttled, status code: %d, when recalculating %s for company %s; retrying in %d ms";
+    private static final String CONNECTION_MSG = "Call to API failed with %s when recalculating %s for company %s; retrying in %d ms";
     private static final String COMPANY_NUMBER = "12345678";
     private static final String APPOINTMENTS_DELTA_TYPE = "appointments";
 
@@ -33,6 +42,9 @@ class MetricsApiResponseHandlerTest {
     @Mock
     private Throwable throwable;
 
+    @Mock
+    private MetricsApiBackoff metricsApiBackoff;
+
     @InjectMocks
     private MetricsApiResponseHandler metricsApiResponseHandler;
 
@@ -140,4 +152,84 @@ class MetricsApiResponseHandlerTest {
         Exception ex = assertThrows(NonRetryableErrorException.class, actual);
         assertEquals(message, ex.getMessage());
     }
+
+    @Test
+    void testHandleApiErrorResponseExceptionWhenStatusCode429HonoursRetryAfter() {
+        // given
+        HttpResponseException.Builder builder = new HttpResponseException.Builder(429, "",
+                new HttpHeaders().setRetryAfter("5"));
+        when(metricsApiBackoff.throttled(EnumSet.of(MetricsType.APPOINTMENTS), "5")).thenReturn(OptionalLong.of(5000L));
+        String message = String.format(THROTTLED_MSG, 429, APPOINTMENTS_DELTA_TYPE, COMPANY_NUMBER, 5000L);
+
+        // when
+        Executable actual = () -> metricsApiResponseHandler.handle(COMPANY_NUMBER, APPOINTMENTS_DELTA_TYPE, new ApiErrorResponseException(builder));
+
+        // then
+        RetryableErrorException ex = assertThrows(RetryableErrorException.class, actual);
+        assertEquals(message, ex.getMessage());
+        assertEquals(OptionalLong.of(5000L), ex.getRetryDelay());
+    }
+
+    @Test
+    void testHandleApiErrorResponseExceptionWhenStatusCode503ForMergedDeltaTypes() {
+        // given
+        HttpResponseException.Builder builder = new HttpResponseException.Builder(503, "", new HttpHeaders());
+        when(metricsApiBackoff.throttled(EnumSet.of(MetricsType.MORTGAGE, MetricsType.PSC), null))
+                .thenReturn(OptionalLong.of(1000L));
+
+        // when
+        Executable actual = () -> metricsApiResponseHandler.handle(COMPANY_NUMBER, "charges,pscs", new ApiErrorResponseException(builder));
+
+        // then
+        RetryableErrorException ex = assertThrows(RetryableErrorException.class, actual);
+        assertEquals(OptionalLong.of(1000L), ex.getRetryDelay());
+    }
+
+    @Test
+    void testHandleApiErrorResponseExceptionWhenStatusCode503AndAdaptiveBackoffDisabled() {
+        // given
+        HttpResponseException.Builder builder = new HttpResponseException.Builder(503, "", new HttpHeaders());
+        ApiErrorResponseException exception = new ApiErrorResponseException(builder);
+        when(metricsApiBackoff.throttled(any(), any())).thenReturn(OptionalLong.empty());
+        String message = String.format(API_INFO_RESPONSE_MSG, 503, Arrays.toString(exception.getStackTrace()));
+
+        // when
+        Executable actual = () -> metricsApiResponseHandler.handle(COMPANY_NUMBER, APPOINTMENTS_DELTA_TYPE, exception);
+
+        // then
+        RetryableErrorException ex = assertThrows(RetryableErrorException.class, actual);
+        assertEquals(message, ex.getMessage());
+        assertEquals(OptionalLong.empty(), ex.getRetryDelay());
+    }
+
+    @Test
+    void testHandleIoExceptionUsesConnectionBackoff() {
+        // given
+        when(metricsApiBackoff.connectionFailed(EnumSet.of(MetricsType.APPOINTMENTS))).thenReturn(OptionalLong.of(250L));
+        String message = String.format(CONNECTION_MSG, "HttpTimeoutException", APPOINTMENTS_DELTA_TYPE, COMPANY_NUMBER, 250L);
+
+        // when
+        Executable actual = () -> metricsApiResponseHandler.handle(COMPANY_NUMBER, APPOINTMENTS_DELTA_TYPE,
+                new HttpTimeoutException("request timed out"));
+
+        // then
+        RetryableErrorException ex = assertThrows(RetryableErrorException.class, actual);
+        assertEquals(message, ex.getMessage());
+        assertEquals(OptionalLong.of(250L), ex.getRetryDelay());
+    }
+
+    @Test
+    void testHandleIoExceptionAsServerErrorWhenAdaptiveBackoffDisabled() {
+        // given
+        when(metricsApiBackoff.connectionFailed(any())).thenReturn(OptionalLong.empty());
+
+        // when
+        Executable actual = () -> metricsApiResponseHandler.handle(COMPANY_NUMBER, APPOINTMENTS_DELTA_TYPE,
+                new ConnectException("connection refused"));
+
+        // then
+        RetryableErrorException ex = assertThrows(RetryableErrorException.class, actual);
+        assertTrue(ex.getMessage().startsWith("Call to API failed, status code: 500."));
+        assertEquals(OptionalLong.empty(), ex.getRetryDelay());
+    }
 }
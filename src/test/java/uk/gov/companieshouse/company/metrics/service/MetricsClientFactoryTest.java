@@ -9,6 +9,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import uk.gov.companieshouse.company.metrics.type.DeltaType;
+import uk.gov.companieshouse.company.metrics.type.EventType;
 import uk.gov.companieshouse.company.metrics.util.TestConfig;
 
 @SpringBootTest
@@ -25,7 +27,7 @@ class MetricsClientFactoryTest {
     void getChargesClientWhenChangedEventType() {
         // given
         // when
-        MetricsClient metricsClient = factory.getMetricsClient("charges", "changed");
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.CHARGES, EventType.CHANGED);
 
         // then
         assertTrue(metricsClient instanceof ChargesClient);
@@ -36,7 +38,7 @@ class MetricsClientFactoryTest {
     void getChargesClientWhenDeletedEventType() {
         // given
         // when
-        MetricsClient metricsClient = factory.getMetricsClient("charges", "deleted");
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.CHARGES, EventType.DELETED);
 
         // then
         assertTrue(metricsClient instanceof ChargesClient);
@@ -47,7 +49,7 @@ class MetricsClientFactoryTest {
     void getAppointmentsClientWhenChangedEventType() {
         // given
         // when
-        MetricsClient metricsClient = factory.getMetricsClient("officers", "changed");
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.OFFICERS, EventType.CHANGED);
 
         // then
         assertTrue(metricsClient instanceof AppointmentsClient);
@@ -58,7 +60,7 @@ class MetricsClientFactoryTest {
     void getAppointmentsClientWhenDeletedEventType() {
         // given
         // when
-        MetricsClient metricsClient = factory.getMetricsClient("officers", "deleted");
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.OFFICERS, EventType.DELETED);
 
         // then
         assertTrue(metricsClient instanceof AppointmentsClient);
@@ -69,7 +71,7 @@ class MetricsClientFactoryTest {
     void getPSCsClientWhenChangedEventType() {
         // given
         // when
-        MetricsClient metricsClient = factory.getMetricsClient("pscs", "changed");
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.PSCS, EventType.CHANGED);
 
         // then
         assertTrue(metricsClient instanceof PscsClient);
@@ -80,7 +82,7 @@ class MetricsClientFactoryTest {
     void getPSCsClientWhenDeletedEventType() {
         // given
         // when
-        MetricsClient metricsClient = factory.getMetricsClient("pscs", "deleted");
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.PSCS, EventType.DELETED);
 
         // then
         assertTrue(metricsClient instanceof PscsClient);
@@ -91,7 +93,8 @@ class MetricsClientFactoryTest {
     void getDefaultMetricsClientDeltaType() {
         // given
         // when
-        MetricsClient metricsClient = factory.getMetricsClient("deltaType", "changed");
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.of("deltaType"),
+                EventType.CHANGED);
 
         // then
         assertTrue(metricsClient instanceof NullMetricsClient);
@@ -102,9 +105,35 @@ class MetricsClientFactoryTest {
     void getDefaultMetricsClientEventType() {
         // given
         // when
-        MetricsClient metricsClient = factory.getMetricsClient("exemptions", "eventType");
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.of("exemptions"),
+                EventType.of("eventType"));
 
         // then
         assertTrue(metricsClient instanceof NullMetricsClient);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Metrics factory correctly returns a registers client for each event type")
+    void getRegistersClientForEachEventType() {
+        // given
+        // when
+        MetricsClient changed = factory.getMetricsClient(DeltaType.REGISTERS, EventType.CHANGED);
+        MetricsClient deleted = factory.getMetricsClient(DeltaType.REGISTERS, EventType.DELETED);
+
+        // then
+        assertTrue(changed instanceof RegistersClient);
+        assertTrue(deleted instanceof RegistersClient);
+    }
+
+    @Test
+    @DisplayName("Metrics factory correctly returns a null metrics client when an event type is unknown")
+    void getDefaultMetricsClientUnknownEventType() {
+        // given
+        // when
+        MetricsClient metricsClient = factory.getMetricsClient(DeltaType.CHARGES,
+                EventType.of("eventType"));
+
+        // then
+        assertTrue(metricsClient instanceof NullMetricsClient);
+    }
+}
@@ -17,7 +17,6 @@ import uk.gov.companieshouse.api.model.ApiResponse;
 import uk.gov.companieshouse.company.metrics.transformer.CompanyMetricsApiTransformer;
 
 import java.util.Collections;
-import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -39,7 +38,7 @@ class RegistersClientTest {
     private static final boolean IS_REGISTERS = true;
 
     @Mock
-    private Supplier<InternalApiClient> internalApiClientSupplier;
+    private InternalApiClientPool internalApiClientPool;
 
     @Mock
     private InternalApiClient internalApiClient;
@@ -65,7 +64,7 @@ class RegistersClientTest {
     @Test
     void testUpsert() throws ApiErrorResponseException, URIValidationException {
         // given
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(registersMetricsPostHandler);
         when(registersMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -84,7 +83,7 @@ class RegistersClientTest {
     void testThrowNonRetryableExceptionIfClientErrorReturned() throws ApiErrorResponseException, URIValidationException {
         // given
         ApiErrorResponseException apiErrorResponseException = new ApiErrorResponseException(new HttpResponseException.Builder(404, "Not found", new HttpHeaders()));
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(registersMetricsPostHandler);
         when(registersMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -103,7 +102,7 @@ class RegistersClientTest {
     void testThrowRetryableExceptionIfServerErrorReturned() throws ApiErrorResponseException, URIValidationException {
         // given
         ApiErrorResponseException apiErrorResponseException = new ApiErrorResponseException(new HttpResponseException.Builder(500, "Internal server error", new HttpHeaders()));
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(registersMetricsPostHandler);
         when(registersMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -122,7 +121,7 @@ class RegistersClientTest {
     void testThrowNonRetryableExceptionIfBadRequestReturned() throws ApiErrorResponseException, URIValidationException {
         // given
         ApiErrorResponseException apiErrorResponseException = new ApiErrorResponseException(new HttpResponseException.Builder(400, "Internal server error", new HttpHeaders()));
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(registersMetricsPostHandler);
         when(registersMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -141,7 +140,7 @@ class RegistersClientTest {
     void testThrowRetryableExceptionIfIllegalArgumentExceptionIsCaught() throws ApiErrorResponseException, URIValidationException {
         // given
         IllegalArgumentException illegalArgumentException = new IllegalArgumentException("Internal server error");
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(registersMetricsPostHandler);
         when(registersMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -160,7 +159,7 @@ class RegistersClientTest {
     void testThrowNonRetryableExceptionIfComapnyNumberInvalid() throws ApiErrorResponseException, URIValidationException {
         // given
         URIValidationException uriValidationException = new URIValidationException("Invalid URI");
-        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClientPool.borrow()).thenReturn(internalApiClient);
         when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privateCompanyMetricsUpsertHandler()).thenReturn(registersMetricsPostHandler);
         when(registersMetricsPostHandler.postCompanyMetrics(anyString(), any())).thenReturn(privateCompanyMetricsUpsert);
@@ -0,0 +1,156 @@
+package uk.gov.companieshouse.company.metrics.transformer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.gov.companieshouse.api.InternalApiClient;
+import uk.gov.companieshouse.api.error.ApiErrorResponseException;
+import uk.gov.companieshouse.api.handler.exception.URIValidationException;
+import uk.gov.companieshouse.api.http.ApiKeyHttpClient;
+
+/**
+ * Checks the encoder against the body the SDK sends on the existing recalculate path, captured
+ * by WireMock, so the asynchronous client is held to the same bytes on the wire.
+ */
+class CompanyMetricsApiRequestEncoderTest {
+
+    private static final String GOLDEN_FILE = "/metrics-recalculate-bodies.jsonl";
+    private static final String UPDATED_BY = "stream-company-charges-0-42";
+    private static final String COMPANY_NUMBER = "01203396";
+    private static final WireMockServer WIRE_MOCK = new WireMockServer(options().dynamicPort());
+
+    private final CompanyMetricsApiTransformer transformer = new CompanyMetricsApiTransformer();
+    // built as the application's ObjectMapper bean is
+    private final CompanyMetricsApiRequestEncoder encoder = new CompanyMetricsApiRequestEncoder(
+            Jackson2ObjectMapperBuilder.json().build(), transformer);
+
+    @BeforeAll
+    static void startWireMock() {
+        WIRE_MOCK.start();
+        WIRE_MOCK.stubFor(post(urlEqualTo(CompanyMetricsApiRequestEncoder
+                .recalculatePath(COMPANY_NUMBER))).willReturn(ok()));
+    }
+
+    @AfterAll
+    static void stopWireMock() {
+        WIRE_MOCK.stop();
+    }
+
+    @BeforeEach
+    void setup() {
+        WIRE_MOCK.resetRequests();
+    }
+
+    @Test
+    void When_encode_Expect_GoldenBodyForEveryFlagCombination() throws IOException {
+        List<String> golden = goldenBodies();
+
+        for (int flags = 0; flags < 16; flags++) {
+            byte[] body = encoder.encode(UPDATED_BY, (flags & 8) != 0, (flags & 4) != 0,
+                    (flags & 2) != 0, (flags & 1) != 0);
+
+            assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo(golden.get(flags));
+        }
+    }
+
+    @Test
+    void When_postThroughSdk_Expect_GoldenBodySentForEveryFlagCombination() throws Exception {
+        List<String> golden = goldenBodies();
+
+        for (int flags = 0; flags < 16; flags++) {
+            byte[] sent = sentBySdk(UPDATED_BY, (flags & 8) != 0, (flags & 4) != 0,
+                    (flags & 2) != 0, (flags & 1) != 0);
+
+            assertThat(golden.get(flags).getBytes(StandardCharsets.UTF_8)).isEqualTo(sent);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "stream-company-psc-12-987654321", "quote\"d", "back\\slash",
+            "new\nline", "tab\tand\u0001control", "café", "€😀", "\u007f",
+            "</script>"})
+    void When_encodeUpdatedByNeedingEscapes_Expect_SameBytesAsSdkSends(String updatedBy)
+            throws Exception {
+        byte[] expected = sentBySdk(updatedBy, true, false, true, false);
+
+        byte[] body = encoder.encode(updatedBy, true, false, true, false);
+
+        assertThat(body).isEqualTo(expected);
+    }
+
+    @Test
+    void When_encodeRandomUpdatedBy_Expect_SameBytesAsSdkSends() throws Exception {
+        Random random = new Random(20221003L);
+
+        for (int i = 0; i < 1_000; i++) {
+            char[] updatedBy = new char[random.nextInt(40)];
+            for (int index = 0; index < updatedBy.length; index++) {
+                updatedBy[index] = random.nextInt(4) == 0
+                        ? (char) random.nextInt(0xD800) : (char) (0x20 + random.nextInt(0x5F));
+            }
+            int flags = random.nextInt(16);
+            boolean isMortgage = (flags & 8) != 0;
+            boolean isAppointment = (flags & 4) != 0;
+            boolean isPsc = (flags & 2) != 0;
+            boolean isRegister = (flags & 1) != 0;
+
+            byte[] expected = sentBySdk(new String(updatedBy), isMortgage, isAppointment, isPsc,
+                    isRegister);
+
+            assertThat(encoder.encode(new String(updatedBy), isMortgage, isAppointment, isPsc,
+                    isRegister)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void When_recalculatePath_Expect_PathOfCompanyRecalculateEndpoint() {
+        assertThat(CompanyMetricsApiRequestEncoder.recalculatePath("01203396"))
+                .isEqualTo(String.format("/company/%s/metrics/recalculate", "01203396"));
+    }
+
+    /**
+     * Posts the transformed request through the SDK, as the synchronous clients do, and returns
+     * the body WireMock received.
+     */
+    private byte[] sentBySdk(String updatedBy, boolean isMortgage, boolean isAppointment,
+                             boolean isPsc, boolean isRegister)
+            throws ApiErrorResponseException, URIValidationException {
+        InternalApiClient client = new InternalApiClient(new ApiKeyHttpClient("api-key"));
+        client.setBasePath(WIRE_MOCK.baseUrl());
+        client.privateCompanyMetricsUpsertHandler()
+                .postCompanyMetrics(CompanyMetricsApiRequestEncoder.recalculatePath(COMPANY_NUMBER),
+                        transformer.transform(updatedBy, isMortgage, isAppointment, isPsc,
+                                isRegister))
+                .execute();
+        List<LoggedRequest> requests = WIRE_MOCK.findAll(postRequestedFor(urlEqualTo(
+                CompanyMetricsApiRequestEncoder.recalculatePath(COMPANY_NUMBER))));
+        WIRE_MOCK.resetRequests();
+        assertThat(requests).hasSize(1);
+        return requests.getFirst().getBody();
+    }
+
+    private static List<String> goldenBodies() throws IOException {
+        try (InputStream golden =
+                     CompanyMetricsApiRequestEncoderTest.class.getResourceAsStream(GOLDEN_FILE)) {
+            return new String(golden.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package uk.gov.companieshouse.company.metrics.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CompanyKeyMapTest {
+
+    private static final long FIRST = CompanyKey.encode("01203396");
+    private static final long SECOND = CompanyKey.encode("OC305127");
+
+    @Test
+    @DisplayName("Put should hold values by company key and replace existing values")
+    void putHoldsValues() {
+        // given
+        CompanyKeyMap<String> map = new CompanyKeyMap<>();
+
+        // when
+        String first = map.put(FIRST, "first");
+        String replaced = map.put(FIRST, "replaced");
+        map.put(SECOND, "second");
+
+        // then
+        assertThat(first).isNull();
+        assertThat(replaced).isEqualTo("first");
+        assertThat(map.get(FIRST)).isEqualTo("replaced");
+        assertThat(map.get(SECOND)).isEqualTo("second");
+        assertThat(map.get(CompanyKey.encode("SC123456"))).isNull();
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("The map should behave as a HashMap for any sequence of puts")
+    void behavesAsHashMap() {
+        // given
+        Random random = new Random(20221003L);
+        long[] keys = new long[500];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = CompanyKey.encode(String.format("%08d", i * 7919));
+        }
+        CompanyKeyMap<Integer> map = new CompanyKeyMap<>(4);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            long key = keys[random.nextInt(keys.length)];
+            assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+        }
+
+        // then
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key : keys) {
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+    }
+
+    @Test
+    @DisplayName("Clear should remove every company key")
+    void clearRemovesAll() {
+        // given
+        CompanyKeyMap<String> map = new CompanyKeyMap<>();
+        map.put(FIRST, "first");
+
+        // when
+        map.clear();
+
+        // then
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.get(FIRST)).isNull();
+    }
+
+    @Test
+    @DisplayName("Put should reject zero, which is not a company key")
+    void putRejectsZero() {
+        // given
+        CompanyKeyMap<String> map = new CompanyKeyMap<>();
+
+        // then
+        assertThrows(IllegalArgumentException.class, () -> map.put(0L, "zero"));
+        assertThat(map.get(0L)).isNull();
+    }
+}
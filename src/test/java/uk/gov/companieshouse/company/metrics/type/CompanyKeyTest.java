@@ -0,0 +1,86 @@
+package uk.gov.companieshouse.company.metrics.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class CompanyKeyTest {
+
+    private static final String ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    @ParameterizedTest
+    @ValueSource(strings = {"01203396", "OC305127", "SC123456", "000001", "zzzzzzzzzz", "Ab1234"})
+    @DisplayName("Decode should return the company number that was encoded")
+    void decodeReturnsEncodedCompanyNumber(String companyNumber) {
+        // when
+        long key = CompanyKey.encode(companyNumber);
+
+        // then
+        assertThat(key).isNotZero();
+        assertThat(CompanyKey.length(key)).isEqualTo(companyNumber.length());
+        assertThat(CompanyKey.decode(key)).isEqualTo(companyNumber);
+    }
+
+    @Test
+    @DisplayName("Encode should give distinct company numbers distinct keys")
+    void encodeGivesDistinctKeys() {
+        // given
+        Random random = new Random(20221003L);
+        Set<String> companyNumbers = new HashSet<>();
+        Set<Long> keys = new HashSet<>();
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder companyNumber = new StringBuilder();
+            int length = 6 + random.nextInt(5);
+            for (int character = 0; character < length; character++) {
+                companyNumber.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            if (companyNumbers.add(companyNumber.toString())) {
+                long key = CompanyKey.encode(companyNumber);
+                keys.add(key);
+                assertThat(CompanyKey.decode(key)).isEqualTo(companyNumber.toString());
+            }
+        }
+
+        // then
+        assertThat(keys).hasSameSizeAs(companyNumbers);
+    }
+
+    @Test
+    @DisplayName("Encode should pack a company number from within a uri")
+    void encodePacksRange() {
+        // when
+        long key = CompanyKey.encode("/company/OC305127/charges", 9, 17);
+
+        // then
+        assertThat(key).isEqualTo(CompanyKey.encode("OC305127"));
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"12345", "12345678901", "0120339-", "OC30512é", "0120 396"})
+    @DisplayName("Encode should reject values that are not 6 to 10 letters and digits")
+    void encodeRejectsInvalidCompanyNumbers(String companyNumber) {
+        // then
+        assertThat(CompanyKey.isValid(companyNumber)).isFalse();
+        assertThrows(IllegalArgumentException.class, () -> CompanyKey.encode(companyNumber));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0L, 1L, -1L, 0x3FL << 54})
+    @DisplayName("Decode should reject values that are not company keys")
+    void decodeRejectsInvalidKeys(long key) {
+        // then
+        assertThrows(IllegalArgumentException.class, () -> CompanyKey.decode(key));
+    }
+}